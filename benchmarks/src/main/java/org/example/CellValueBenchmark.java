@@ -0,0 +1,127 @@
+package org.example;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Per-cell conversions: cellToString when reading in memory, setCellValue when exporting,
+ * and the number/boolean detection behind setCellValue against the regex it replaced.
+ * Every operation handles the same mix of names, scores, booleans and empty cells.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellValueBenchmark {
+
+    private static final String[] VALUES = {
+            "Nama123", "Putri45 Nama123", "Kelas 7", "85", "77.5", "85.", "100", "",
+            "TRUE", "false", "remedial", "-3.25", "1.5E2", "Putri7", "92.25", "TL"
+    };
+
+    private static final Pattern NUMERIC = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+    private XSSFWorkbook workbook;
+    private Cell[] readCells;
+    private Cell[] writeCells;
+    private SimpleExcelReader reader;
+    private SimpleExcelExporter exporter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet();
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+
+        exporter = new SimpleExcelExporter();
+        reader = new SimpleExcelReader();
+
+        // Cells as the exporter writes them, with a date and a formula like real gradebooks
+        Row readRow = sheet.createRow(0);
+        readCells = new Cell[VALUES.length + 2];
+        for (int i = 0; i < VALUES.length; i++) {
+            readCells[i] = readRow.createCell(i);
+            exporter.setCellValue(readCells[i], VALUES[i]);
+        }
+        readCells[VALUES.length] = readRow.createCell(VALUES.length);
+        readCells[VALUES.length].setCellValue(45000.0);
+        readCells[VALUES.length].setCellStyle(dateStyle);
+        readCells[VALUES.length + 1] = readRow.createCell(VALUES.length + 1);
+        readCells[VALUES.length + 1].setCellFormula("B1*100");
+
+        Row writeRow = sheet.createRow(1);
+        writeCells = new Cell[VALUES.length];
+        for (int i = 0; i < VALUES.length; i++) {
+            writeCells[i] = writeRow.createCell(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public void cellToString(Blackhole blackhole) {
+        for (Cell cell : readCells) {
+            blackhole.consume(reader.cellToString(cell));
+        }
+    }
+
+    @Benchmark
+    public void setCellValue() {
+        for (int i = 0; i < VALUES.length; i++) {
+            exporter.setCellValue(writeCells[i], VALUES[i]);
+        }
+    }
+
+    @Benchmark
+    public void classifier(Blackhole blackhole) {
+        for (String value : VALUES) {
+            double number = ValueClassifier.parseNumber(value);
+            if (Double.isNaN(number)) {
+                blackhole.consume(ValueClassifier.parseBoolean(value));
+            } else {
+                blackhole.consume(number);
+            }
+        }
+    }
+
+    /**
+     * The detection setCellValue used before ValueClassifier
+     */
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String value : VALUES) {
+            if (!value.trim().isEmpty() && NUMERIC.matcher(value).matches()) {
+                blackhole.consume(Double.parseDouble(value));
+            } else {
+                String lower = value.toLowerCase();
+                blackhole.consume(lower.equals("true") || lower.equals("false"));
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the sorted and highlighted workbook, from the list and the typed form, through POI or
+ * the direct .xlsx writer (the .xls runs ignore directWriter)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExporterBenchmark {
+
+    @Param({"xls", "xlsx"})
+    public String format;
+
+    @Param({"1000", "20000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean directWriter;
+
+    private Path file;
+    private List<List<String>> data;
+    private GradeTable table;
+    private SimpleExcelExporter exporter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("export", "." + format);
+
+        GradebookGenerator generator = new GradebookGenerator(rows, 1, 1000);
+        data = generator.rows();
+        table = generator.table();
+
+        exporter = new SimpleExcelExporter();
+        exporter.setAutoSizeColumns(false); // Same as the CLI, AWT font metrics would dominate
+        exporter.setDirectWriter(directWriter);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void exportList() throws IOException {
+        exporter.exportToExcel(file.toString(), data, ConversionEngine.DEFAULT_HEADERS);
+    }
+
+    @Benchmark
+    public void exportTable() throws IOException {
+        exporter.exportToExcel(file.toString(), table, ConversionEngine.DEFAULT_HEADERS);
+    }
+}
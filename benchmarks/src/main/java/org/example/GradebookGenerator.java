@@ -0,0 +1,193 @@
+package org.example;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic gradebooks laid out like the exam result exports: a header row, then
+ * last name in column A, first name in B, department in E and the score in K, with filler columns between.
+ * The same seed always gives the same data.
+ */
+public class GradebookGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+
+    // Most scores are numbers, some cells hold what teachers really type
+    private static final String[] TEXT_SCORES = {"", "85.", "TL", "90 ", "remedial"};
+    private static final String[] ACCENTS = {"é", "ñ", "ü", "â"};
+
+    private static final int XLS_MAX_ROWS = 65535;
+
+    private final int rows;
+    private final int sheets;
+    private final int cardinality;
+    private long seed = DEFAULT_SEED;
+    private boolean accentedNames;
+
+    /**
+     * Create a generator
+     * @param rows Data rows per sheet
+     * @param sheets Number of sheets, all with the same layout
+     * @param cardinality Distinct first and last names, departments are capped at 20
+     */
+    public GradebookGenerator(int rows, int sheets, int cardinality) {
+        if (rows < 0 || sheets < 1 || cardinality < 1) {
+            throw new IllegalArgumentException("Invalid size: rows=" + rows + " sheets=" + sheets
+                    + " cardinality=" + cardinality);
+        }
+        this.rows = rows;
+        this.sheets = sheets;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Write the gradebook, the format follows the extension (.xls or .xlsx)
+     */
+    public void write(Path file) throws IOException {
+        boolean xls = file.getFileName().toString().toLowerCase().endsWith(".xls");
+        if (xls && rows + 1 > XLS_MAX_ROWS) {
+            throw new IllegalArgumentException(".xls sheets hold at most " + (XLS_MAX_ROWS - 1) + " data rows");
+        }
+
+        Workbook workbook = xls ? new HSSFWorkbook() : new SXSSFWorkbook(100);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            Random random = new Random(seed);
+            for (int s = 0; s < sheets; s++) {
+                Sheet sheet = workbook.createSheet("Kelas " + (s + 1));
+                Row header = sheet.createRow(0);
+                for (int col = 0; col <= 10; col++) {
+                    header.createCell(col).setCellValue(headerName(col));
+                }
+                for (int i = 1; i <= rows; i++) {
+                    writeRow(sheet.createRow(i), random);
+                }
+            }
+            workbook.write(out);
+        } finally {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+            workbook.close();
+        }
+    }
+
+    private void writeRow(Row row, Random random) {
+        row.createCell(0).setCellValue(lastName(random));
+        row.createCell(1).setCellValue(firstName(random));
+        row.createCell(2).setCellValue(random.nextInt(1000000)); // Student number
+        row.createCell(4).setCellValue(department(random));
+        row.createCell(7).setCellValue(random.nextDouble() * 100); // Other assessment
+
+        if (random.nextInt(10) == 0) {
+            row.createCell(10).setCellValue(TEXT_SCORES[random.nextInt(TEXT_SCORES.length)]);
+        } else {
+            row.createCell(10).setCellValue(Math.round(random.nextDouble() * 10000) / 100.0);
+        }
+    }
+
+    /**
+     * The data the exporter receives after reading a generated sheet
+     * (Last Name, First Name, Full Name, Department, Score)
+     */
+    public List<List<String>> rows() {
+        Random random = new Random(seed);
+        List<List<String>> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String lastName = lastName(random);
+            String firstName = firstName(random);
+            random.nextInt(1000000);
+            String department = department(random);
+            random.nextDouble();
+
+            String score;
+            if (random.nextInt(10) == 0) {
+                score = TEXT_SCORES[random.nextInt(TEXT_SCORES.length)].trim();
+            } else {
+                score = SimpleExcelReader.formatNumber(Math.round(random.nextDouble() * 10000) / 100.0);
+            }
+            data.add(List.of(lastName, firstName, (firstName + " " + lastName).trim(), department, score));
+        }
+        return data;
+    }
+
+    /**
+     * Same as rows(), in typed form
+     */
+    public GradeTable table() {
+        return GradeTable.fromRows(rows());
+    }
+
+    private String lastName(Random random) {
+        return name("Nama", random);
+    }
+
+    private String firstName(Random random) {
+        return name("Putri", random);
+    }
+
+    private String name(String prefix, Random random) {
+        int index = random.nextInt(cardinality);
+        String name = prefix + index;
+        if (accentedNames && index % 3 == 0) {
+            name += ACCENTS[index % ACCENTS.length];
+        }
+        return name;
+    }
+
+    private String department(Random random) {
+        return "Kelas " + (random.nextInt(Math.min(cardinality, 20)) + 1);
+    }
+
+    private static String headerName(int col) {
+        switch (col) {
+            case 0:
+                return "Nama Belakang";
+            case 1:
+                return "Nama Depan";
+            case 4:
+                return "Kelas";
+            case 10:
+                return "Nilai";
+            default:
+                return "Kolom " + (col + 1);
+        }
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Put accented letters in a third of the names, which takes the sort off its ASCII fast path
+     */
+    public void setAccentedNames(boolean accentedNames) {
+        this.accentedNames = accentedNames;
+    }
+
+    /**
+     * Generate a gradebook from the command line
+     * usage: GradebookGenerator file.xlsx rows [sheets] [cardinality]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GradebookGenerator <file.xls|file.xlsx> <rows> [sheets] [cardinality]");
+            System.exit(2);
+        }
+        int rows = Integer.parseInt(args[1]);
+        int sheets = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int cardinality = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        new GradebookGenerator(rows, sheets, cardinality).write(Paths.get(args[0]));
+    }
+}
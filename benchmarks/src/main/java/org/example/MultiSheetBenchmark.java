@@ -0,0 +1,68 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every sheet of a generated gradebook, sheets parsed concurrently or one after another
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiSheetBenchmark {
+
+    @Param({"xls", "xlsx"})
+    public String format;
+
+    @Param({"4"})
+    public int sheets;
+
+    @Param({"20000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private Path file;
+    private SimpleExcelReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("gradebook", "." + format);
+        new GradebookGenerator(rows, sheets, 1000).write(file);
+
+        reader = new SimpleExcelReader();
+        reader.setSheetSelection(SheetSelection.ALL);
+        reader.setParallelSheets(parallel);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Map<String, GradeTable> readSheets() throws IOException {
+        return reader.readSheets(file.toString());
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Converting a batch of generated gradebooks with the engine, for tuning the threads of the export
+ * stage and the capacity of the queues between the stages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"8"})
+    public int files;
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"2"})
+    public int parallelism;
+
+    @Param({"1", "2"})
+    public int exportThreads;
+
+    @Param({"1", "4"})
+    public int queueCapacity;
+
+    private Path folder;
+    private List<Path> inputFiles;
+    private ConversionEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("pipeline");
+        inputFiles = new ArrayList<>();
+        GradebookGenerator generator = new GradebookGenerator(rows, 1, 1000);
+        for (int i = 0; i < files; i++) {
+            Path file = folder.resolve("nilai" + i + (i % 2 == 0 ? ".xlsx" : ".xls"));
+            generator.write(file);
+            inputFiles.add(file);
+        }
+
+        engine = new ConversionEngine(parallelism);
+        engine.setStageThreads(ConversionEngine.PipelineStage.EXPORT, exportThreads);
+        engine.setQueueCapacity(queueCapacity);
+        engine.setExporterFactory(() -> {
+            SimpleExcelExporter exporter = new SimpleExcelExporter();
+            exporter.setAutoSizeColumns(false); // Same as the CLI
+            return exporter;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        engine.close();
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ConversionResult> convertBatch() throws IOException, InterruptedException {
+        return engine.convert(inputFiles, folder.resolve("output"), null);
+    }
+}
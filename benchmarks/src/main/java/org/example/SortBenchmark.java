@@ -0,0 +1,69 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting by department and full name, against the comparator the exporter used before
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"100", "10000"})
+    public int cardinality;
+
+    // Accented names need full collation keys instead of the ASCII fast path
+    @Param({"false", "true"})
+    public boolean accented;
+
+    private GradeTable table;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GradebookGenerator generator = new GradebookGenerator(rows, 1, cardinality);
+        generator.setAccentedNames(accented);
+        table = generator.table();
+    }
+
+    @Benchmark
+    public int[] collationSort() {
+        return GradeSorter.sort(table);
+    }
+
+    @Benchmark
+    public Integer[] compareToIgnoreCase() {
+        Integer[] order = new Integer[table.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (row1, row2) -> {
+            int deptCompare = table.getDepartment(row1).compareToIgnoreCase(table.getDepartment(row2));
+            if (deptCompare != 0) {
+                return deptCompare;
+            }
+            return table.getFullName(row1).compareToIgnoreCase(table.getFullName(row2));
+        });
+        return order;
+    }
+}
@@ -0,0 +1,459 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Declares where the five output columns come from, so other LMS export templates work without
+ * code changes. Every field is read from a source column, picked by index or by header name,
+ * or derived from other fields with a template like "{firstName} {lastName}".
+ * <p>
+ * Mappings are usually loaded from a properties file:
+ * <pre>
+ * # Source: zero-based index (10), column letter (K) or header name (header:Nilai Akhir)
+ * lastName.source = 0
+ * firstName.source = 1
+ * department.source = header:Kelas
+ * score.source = K
+ * score.type = number
+ * fullName.derive = {firstName} {lastName}
+ * score.name = Nilai/100
+ * </pre>
+ * Keys that are not given keep the default, which reads columns 0, 1, 4 and 10.
+ * An empty source leaves the field empty.
+ */
+public class ColumnMapping {
+
+    public static final String DEFAULT_FILE_NAME = "column-mapping.properties";
+
+    /**
+     * The output columns, in output order. The exporter sorts on department and full name
+     * and highlights on the score, so the set of fields is fixed.
+     */
+    public enum Field {
+        LAST_NAME("lastName", "Last Name"),
+        FIRST_NAME("firstName", "First Name"),
+        FULL_NAME("fullName", "Full Name"),
+        DEPARTMENT("department", "Department"),
+        SCORE("score", "Grade/100.00");
+
+        private final String key;
+        private final String defaultName;
+
+        Field(String key, String defaultName) {
+            this.key = key;
+            this.defaultName = defaultName;
+        }
+
+        /**
+         * Name of the field in mapping files and templates
+         */
+        public String getKey() {
+            return key;
+        }
+
+        static Field forKey(String key) {
+            for (Field field : values()) {
+                if (field.key.equalsIgnoreCase(key)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown field \"" + key + "\", use one of "
+                    + Arrays.toString(Arrays.stream(values()).map(Field::getKey).toArray()));
+        }
+    }
+
+    /**
+     * How a field's cells are kept: NUMBER keeps numeric cells as numbers, TEXT formats them.
+     * Only the score can be a number.
+     */
+    public enum Type {
+        TEXT,
+        NUMBER
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final int[] sourceIndex = new int[FIELDS.length];      // -1 when not read by index
+    private final String[] sourceHeader = new String[FIELDS.length]; // null when not read by header
+    private final Template[] derivations = new Template[FIELDS.length];
+    private final String[] targetNames = new String[FIELDS.length];
+    private final Type[] types = new Type[FIELDS.length];
+
+    /**
+     * Create a mapping where every field is empty, with the default target names
+     */
+    public ColumnMapping() {
+        Arrays.fill(sourceIndex, -1);
+        Arrays.fill(types, Type.TEXT);
+        for (Field field : FIELDS) {
+            targetNames[field.ordinal()] = field.defaultName;
+        }
+    }
+
+    /**
+     * The original layout: last name, first name, department and score in columns 0, 1, 4 and 10,
+     * full name derived as "first last"
+     */
+    public static ColumnMapping defaults() {
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.setSourceIndex(Field.LAST_NAME, 0);
+        mapping.setSourceIndex(Field.FIRST_NAME, 1);
+        mapping.setDerived(Field.FULL_NAME, "{firstName} {lastName}");
+        mapping.setSourceIndex(Field.DEPARTMENT, 4);
+        mapping.setSourceIndex(Field.SCORE, 10);
+        mapping.setType(Field.SCORE, Type.NUMBER);
+        return mapping;
+    }
+
+    /**
+     * Load a mapping file on top of the defaults
+     * @throws IllegalArgumentException if the file has invalid entries
+     */
+    public static ColumnMapping load(Path file) throws IOException {
+        return load(file, defaults());
+    }
+
+    /**
+     * Load a mapping file on top of another mapping, like the layout of a roster
+     * @return The given mapping
+     * @throws IllegalArgumentException if the file has invalid entries
+     */
+    public static ColumnMapping load(Path file, ColumnMapping mapping) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        mapping.apply(properties);
+        return mapping;
+    }
+
+    /**
+     * Apply entries like "score.source = header:Nilai" to this mapping
+     */
+    public void apply(Properties properties) {
+        for (Field field : FIELDS) {
+            if (properties.containsKey(field.key + ".source") && properties.containsKey(field.key + ".derive")) {
+                throw new IllegalArgumentException(field.key + " has both a source and a derive entry");
+            }
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (dot < 0) {
+                throw new IllegalArgumentException("Invalid mapping key \"" + key + "\", expected <field>.<setting>");
+            }
+            Field field = Field.forKey(key.substring(0, dot).trim());
+            String value = properties.getProperty(key).trim();
+
+            switch (key.substring(dot + 1).trim().toLowerCase(Locale.ROOT)) {
+                case "source":
+                    setSource(field, value);
+                    break;
+                case "derive":
+                    clear(field);
+                    derivations[field.ordinal()] = Template.parse(value);
+                    break;
+                case "name":
+                    setTargetName(field, value);
+                    break;
+                case "type":
+                    setType(field, parseType(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown mapping setting \"" + key
+                            + "\", use source, derive, name or type");
+            }
+        }
+
+        // Templates may have been set before the fields they use were given a source
+        for (Field field : FIELDS) {
+            if (derivations[field.ordinal()] != null) {
+                derivations[field.ordinal()].validate(this);
+            }
+        }
+    }
+
+    /**
+     * Set the source from text: an index, a column letter, "header:<name>" or empty for none
+     */
+    public void setSource(Field field, String source) {
+        if (source.isEmpty()) {
+            clear(field);
+        } else if (source.regionMatches(true, 0, "header:", 0, 7)) {
+            setSourceHeader(field, source.substring(7).trim());
+        } else if (source.chars().allMatch(Character::isDigit)) {
+            setSourceIndex(field, Integer.parseInt(source));
+        } else if (source.length() <= 3 && source.chars().allMatch(c -> c >= 'A' && c <= 'Z')) {
+            setSourceIndex(field, columnLetterIndex(source));
+        } else {
+            throw new IllegalArgumentException("Invalid source \"" + source + "\" for " + field.key
+                    + ", use an index like 10, a column letter like K or header:<name>");
+        }
+    }
+
+    /**
+     * Read the field from a zero-based column index
+     */
+    public void setSourceIndex(Field field, int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Column index must not be negative: " + index);
+        }
+        clear(field);
+        sourceIndex[field.ordinal()] = index;
+    }
+
+    /**
+     * Read the field from the column whose header matches, ignoring case and surrounding spaces
+     */
+    public void setSourceHeader(Field field, String header) {
+        if (header.isEmpty()) {
+            throw new IllegalArgumentException("Header name of " + field.key + " must not be empty");
+        }
+        clear(field);
+        sourceHeader[field.ordinal()] = header;
+    }
+
+    /**
+     * Derive the field from other fields, like "{firstName} {lastName}". The result is trimmed.
+     * Only fields read from a source column can be used.
+     */
+    public void setDerived(Field field, String template) {
+        Template derivation = Template.parse(template);
+        derivation.validate(this);
+        clear(field);
+        derivations[field.ordinal()] = derivation;
+    }
+
+    private void clear(Field field) {
+        sourceIndex[field.ordinal()] = -1;
+        sourceHeader[field.ordinal()] = null;
+        derivations[field.ordinal()] = null;
+    }
+
+    public void setTargetName(Field field, String name) {
+        targetNames[field.ordinal()] = name;
+    }
+
+    public void setType(Field field, Type type) {
+        if (type == Type.NUMBER && field != Field.SCORE) {
+            throw new IllegalArgumentException("Only the score can be a number, " + field.key + " is text");
+        }
+        types[field.ordinal()] = type;
+    }
+
+    public String getTargetName(Field field) {
+        return targetNames[field.ordinal()];
+    }
+
+    public Type getType(Field field) {
+        return types[field.ordinal()];
+    }
+
+    /**
+     * Output column headers, in output order
+     */
+    public List<String> getTargetNames() {
+        return List.of(targetNames);
+    }
+
+    boolean isRead(Field field) {
+        return sourceIndex[field.ordinal()] >= 0 || sourceHeader[field.ordinal()] != null;
+    }
+
+    boolean isDerived(Field field) {
+        return derivations[field.ordinal()] != null;
+    }
+
+    /**
+     * Whether a source column is picked by header name
+     */
+    boolean needsHeader() {
+        for (String header : sourceHeader) {
+            if (header != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Work out the source columns of a sheet
+     * @param header Header row text by column index, may be null when needsHeader() is false
+     * @throws IllegalArgumentException if a header name is missing from the sheet
+     */
+    Projection resolve(String[] header) {
+        List<Integer> columns = new ArrayList<>();
+        int[] slotByField = new int[FIELDS.length];
+        Arrays.fill(slotByField, -1);
+
+        for (Field field : FIELDS) {
+            int column = sourceIndex[field.ordinal()];
+            if (sourceHeader[field.ordinal()] != null) {
+                column = findHeader(header, sourceHeader[field.ordinal()]);
+            }
+            if (column < 0) {
+                continue;
+            }
+
+            // Two fields may read the same column, it is decoded once
+            int slot = columns.indexOf(column);
+            if (slot < 0) {
+                slot = columns.size();
+                columns.add(column);
+            }
+            slotByField[field.ordinal()] = slot;
+        }
+        return new Projection(columns.stream().mapToInt(Integer::intValue).toArray(), slotByField);
+    }
+
+    private static int findHeader(String[] header, String name) {
+        if (header != null) {
+            for (int column = 0; column < header.length; column++) {
+                if (header[column] != null && header[column].trim().equalsIgnoreCase(name)) {
+                    return column;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No column named \"" + name + "\" in the header row");
+    }
+
+    /**
+     * Value of a derived field
+     * @param values Text of every field, derived ones are ignored
+     */
+    String derive(Field field, String[] values) {
+        return derivations[field.ordinal()].apply(values);
+    }
+
+    private static Type parseType(String value) {
+        try {
+            return Type.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid type \"" + value + "\", use text or number");
+        }
+    }
+
+    /**
+     * Zero-based index of a column letter like "K" or "AB"
+     */
+    private static int columnLetterIndex(String letters) {
+        int column = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            column = column * 26 + (letters.charAt(i) - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * Canonical form of the mapping, part of the settings fingerprint of incremental runs
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Field field : FIELDS) {
+            int i = field.ordinal();
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(field.key).append('=');
+            if (sourceIndex[i] >= 0) {
+                sb.append(sourceIndex[i]);
+            } else if (sourceHeader[i] != null) {
+                sb.append("header:").append(sourceHeader[i]);
+            } else if (derivations[i] != null) {
+                sb.append(derivations[i]);
+            }
+            sb.append('/').append(types[i].name().toLowerCase(Locale.ROOT));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Source columns of one sheet and where each field's value is among them
+     */
+    static final class Projection {
+        private final int[] columns;
+        private final int[] slotByField;
+
+        private Projection(int[] columns, int[] slotByField) {
+            this.columns = columns;
+            this.slotByField = slotByField;
+        }
+
+        int[] getColumns() {
+            return columns;
+        }
+
+        /**
+         * Position of the field's value in the projected row, -1 when the field is not read
+         */
+        int getSlot(Field field) {
+            return slotByField[field.ordinal()];
+        }
+    }
+
+    /**
+     * Parsed derivation template, literal text with {field} placeholders
+     */
+    private static final class Template {
+        private final String source;
+        private final List<String> literals; // One more than fields
+        private final List<Field> fields;
+
+        private Template(String source, List<String> literals, List<Field> fields) {
+            this.source = source;
+            this.literals = literals;
+            this.fields = fields;
+        }
+
+        static Template parse(String template) {
+            List<String> literals = new ArrayList<>();
+            List<Field> fields = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = template.indexOf('{', start)) >= 0) {
+                int close = template.indexOf('}', open);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed { in template \"" + template + "\"");
+                }
+                literals.add(template.substring(start, open));
+                fields.add(Field.forKey(template.substring(open + 1, close).trim()));
+                start = close + 1;
+            }
+            literals.add(template.substring(start));
+            return new Template(template, literals, fields);
+        }
+
+        void validate(ColumnMapping mapping) {
+            for (Field field : fields) {
+                if (mapping.isDerived(field)) {
+                    throw new IllegalArgumentException("Template \"" + source + "\" uses " + field.key
+                            + ", which is derived itself");
+                }
+            }
+        }
+
+        String apply(String[] values) {
+            StringBuilder sb = new StringBuilder(literals.get(0));
+            for (int i = 0; i < fields.size(); i++) {
+                String value = values[fields.get(i).ordinal()];
+                sb.append(value != null ? value : "").append(literals.get(i + 1));
+            }
+            return sb.toString().trim();
+        }
+
+        @Override
+        public String toString() {
+            return source;
+        }
+    }
+}
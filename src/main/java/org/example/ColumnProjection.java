@@ -0,0 +1,36 @@
+package org.example;
+
+/**
+ * Chooses the source columns the streaming readers decode. Cells of other columns are skipped.
+ */
+interface ColumnProjection {
+
+    /**
+     * Whether resolve needs the text of the header row, which is then decoded completely
+     */
+    boolean needsHeader();
+
+    /**
+     * Source columns to decode, in the order their values are passed to the RowHandler
+     * @param header Text of the header row by column index (null for empty cells),
+     *               null when needsHeader() is false
+     */
+    int[] resolve(String[] header);
+
+    /**
+     * Projection of fixed column indices
+     */
+    static ColumnProjection of(int[] columns) {
+        return new ColumnProjection() {
+            @Override
+            public boolean needsHeader() {
+                return false;
+            }
+
+            @Override
+            public int[] resolve(String[] header) {
+                return columns;
+            }
+        };
+    }
+}
@@ -0,0 +1,949 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Converts a batch of exam result files concurrently.
+ * Every file gets its own reader and exporter, and a file that fails does not stop the others.
+ * Files of a batch are admitted against a heap budget, see MemoryBudget, so large files do not
+ * run out of memory together, and then pass through parse, sort and export stages that each have
+ * their own threads and a bounded queue in front, so writing one file overlaps parsing the next.
+ */
+public class ConversionEngine implements AutoCloseable {
+
+    public static final String OUTPUT_PREFIX = "output - ";
+    public static final List<String> OUTPUT_EXTENSIONS = List.of(".xls", ".xlsx", CsvReader.EXTENSION);
+    public static final List<String> DEFAULT_HEADERS =
+            List.of("Last Name", "First Name", "Full Name", "Department", "Grade/100.00");
+
+    /**
+     * Where the sheets of a multi-sheet selection go
+     */
+    public enum SheetOutput {
+        SHEETS, // One output file per input, with a sheet per input sheet
+        FILES   // One output file per input sheet, named after the sheet
+    }
+
+    /**
+     * Stages of the batch pipeline, in the order files pass through them
+     */
+    public enum PipelineStage {
+        PARSE,  // Reading the selected sheets of the input
+        SORT,   // Sorting the rows of every table
+        EXPORT  // Writing and recording the output files
+    }
+
+    private static final int MAX_UNMATCHED_SHOWN = 20;
+
+    // Marks the end of the input of a stage, one per thread of the stage
+    private static final Job END = new Job(-1, null, null);
+
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final int[] stageThreads = new int[PipelineStage.values().length];
+    private int queueCapacity;
+    private volatile Map<PipelineStage, StageQueue<Job>> runningQueues = Map.of();
+
+    private Supplier<SimpleExcelReader> readerFactory = SimpleExcelReader::new;
+    private Supplier<SimpleExcelExporter> exporterFactory = SimpleExcelExporter::new;
+    private List<String> headers = DEFAULT_HEADERS;
+    private ColumnMapping columnMapping; // null keeps the mapping of the reader factory
+    private SheetSelection sheetSelection; // null keeps the selection of the reader factory
+    private SheetOutput sheetOutput = SheetOutput.SHEETS;
+    private String outputExtension; // null keeps the extension of the input
+    private boolean incremental;
+    private boolean reconvertAll;
+    private boolean scoreSummary;
+    private Path rosterFile; // null to convert without a roster
+    private ColumnMapping rosterMapping = StudentRoster.defaultMapping();
+    private volatile StudentRoster roster; // Loaded roster, kept across batches until the file changes
+    private MetricsListener metricsListener;
+    private MemoryBudget memoryBudget = new MemoryBudget(MemoryBudget.defaultBudget());
+
+    /**
+     * Create an engine with one worker per available processor
+     */
+    public ConversionEngine() {
+        this(defaultParallelism());
+    }
+
+    /**
+     * Create an engine
+     * @param parallelism Threads of every pipeline stage and capacity of the queues between them
+     */
+    public ConversionEngine(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.queueCapacity = parallelism;
+        Arrays.fill(stageThreads, parallelism);
+        // Stage threads are started per batch and reused by the next one
+        this.executor = Executors.newCachedThreadPool(new WorkerThreadFactory());
+    }
+
+    public static int defaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Convert all files, waiting until the whole batch is done.
+     * In incremental mode files whose output is still valid are skipped and the outputs
+     * of inputs that disappeared are deleted, see ConversionManifest.
+     * @param inputFiles Files to convert
+     * @param outputDir Folder for the output files, created when missing
+     * @param listener Progress listener, may be null
+     * @return One result per input file, in input order
+     * @throws IOException if the output folder cannot be created
+     * @throws InterruptedException if interrupted while waiting, pending files are cancelled
+     */
+    public List<ConversionResult> convert(List<Path> inputFiles, Path outputDir, ConversionListener listener)
+            throws IOException, InterruptedException {
+        return convert(inputFiles, null, outputDir, listener);
+    }
+
+    /**
+     * Convert all files, writing the outputs of files in subfolders of the input folder into the same
+     * subfolders of the output folder, otherwise like convert(inputFiles, outputDir, listener)
+     * @param inputDir Folder the files were found in, null to write every output into outputDir
+     */
+    public List<ConversionResult> convert(List<Path> inputFiles, Path inputDir, Path outputDir,
+                                          ConversionListener listener) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        loadRoster();
+
+        ConversionManifest manifest = null;
+        String settings = null;
+        if (incremental) {
+            manifest = ConversionManifest.load(outputDir);
+            settings = getSettingsFingerprint();
+            for (Path removed : manifest.removeOrphans()) {
+                if (listener != null) {
+                    listener.orphanRemoved(removed);
+                }
+            }
+        }
+
+        List<ConversionResult> results;
+        try {
+            results = convert(inputFiles, inputDir, outputDir, listener, manifest, settings);
+        } finally {
+            if (manifest != null) {
+                manifest.save();
+            }
+        }
+
+        if (scoreSummary) {
+            writeScoreSummary(results, inputDir, outputDir);
+        }
+        if (metricsListener != null) {
+            metricsListener.batchFinished(outputDir);
+        }
+        return results;
+    }
+
+    /**
+     * Update the score statistics of the output folder with a batch and write the summary workbook
+     */
+    private void writeScoreSummary(List<ConversionResult> results, Path inputDir, Path outputDir) {
+        double threshold = exporterFactory.get().getThreshold();
+        try {
+            // Only incremental runs skip files, otherwise the batch is the whole summary
+            ScoreSummary summary = incremental ? ScoreSummary.load(outputDir, threshold)
+                    : new ScoreSummary(outputDir, threshold);
+            summary.update(results);
+            summary.save();
+            summary.write(inputDir);
+        } catch (IOException e) {
+            System.err.println("Unable to write the score summary to " + outputDir + ": " + e.getMessage());
+        }
+    }
+
+    private List<ConversionResult> convert(List<Path> inputFiles, Path inputDir, Path outputDir,
+                                           ConversionListener listener, ConversionManifest manifest, String settings)
+            throws InterruptedException {
+        Batch batch = new Batch(inputFiles.size(), inputDir, outputDir, listener, manifest, settings);
+        batch.run(inputFiles);
+        if (metricsListener != null) {
+            metricsListener.queuesMeasured(batch.maxQueueDepths(), queueCapacity);
+        }
+        return Arrays.asList(batch.results);
+    }
+
+    /**
+     * Convert a single file on the calling thread, ignoring incremental mode
+     */
+    public ConversionResult convertFile(Path inputFile, Path outputDir) {
+        try {
+            loadRoster();
+        } catch (IOException e) {
+            return ConversionResult.failure(inputFile, outputFileFor(inputFile, outputDir, outputExtension), 0, e);
+        }
+        return convertFile(inputFile, outputDir, null, null, null, false);
+    }
+
+    /**
+     * Load the roster, or load it again when the file changed since, so a batch joins with the
+     * current roster and a roster that did not change is read once
+     */
+    private synchronized void loadRoster() throws IOException {
+        if (rosterFile == null) {
+            roster = null;
+        } else if (roster == null || !roster.isCurrent()) {
+            roster = StudentRoster.load(rosterFile, rosterMapping);
+            System.err.println("Loaded roster " + rosterFile.getFileName() + " with " + roster.size() + " students");
+        }
+    }
+
+    /**
+     * Convert a file on the calling thread, running the stages one after another
+     * @param budget Budget the file is admitted against, null to start right away
+     * @param alone Whether the file takes the whole budget, used to retry a file that ran out of memory
+     */
+    private ConversionResult convertFile(Path inputFile, Path outputDir, ConversionManifest manifest,
+                                         String settings, MemoryBudget budget, boolean alone) {
+        Job job = new Job(0, inputFile, outputDir);
+        try {
+            if (!prepare(job, manifest, settings)) {
+                return job.skipped();
+            }
+            if (budget != null) {
+                job.budget = budget;
+                job.taken = alone ? budget.acquireAll() : budget.acquire(job.estimatedHeap());
+            }
+            parse(job);
+            sort(job);
+            return export(job, manifest, settings);
+        } catch (OutOfMemoryError e) {
+            // Drop the tables of this attempt and give back the budget before anything else
+            job.release();
+            if (budget != null && !alone) {
+                System.err.println("Out of memory converting " + inputFile + ", retrying it alone");
+                return convertFile(inputFile, outputDir, manifest, settings, budget, true);
+            }
+            return failed(job, manifest,
+                    new IllegalStateException("Not enough memory to convert " + inputFile.getFileName(), e));
+        } catch (Throwable e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt(); // Cancelled while waiting for the budget
+            }
+            return failed(job, manifest, e);
+        } finally {
+            job.release();
+        }
+    }
+
+    /**
+     * Discovery: create the reader and exporter of a file and check whether it needs converting
+     * @return false when the output is up to date and the file is skipped
+     */
+    private boolean prepare(Job job, ConversionManifest manifest, String settings) throws IOException {
+        job.outputFile = outputFileFor(job.inputFile, job.outputDir, outputExtension);
+        job.outputFiles = List.of(job.outputFile);
+
+        // Per-file instances, so workers share no state
+        job.reader = readerFactory.get();
+        job.exporter = exporterFactory.get();
+        if (columnMapping != null) {
+            job.reader.setColumnMapping(columnMapping);
+        }
+        if (sheetSelection != null) {
+            job.reader.setSheetSelection(sheetSelection);
+        }
+        // A CSV file has no sheets, so every sheet gets a file of its own
+        job.sheetFiles = !job.reader.getSheetSelection().isFirstOnly()
+                && (sheetOutput == SheetOutput.FILES || job.outputFile.toString().endsWith(CsvReader.EXTENSION));
+
+        // Sheet files are named after sheets, which are only known once the input is read
+        if (manifest != null && !reconvertAll && (job.sheetFiles ? manifest.isUpToDate(job.inputFile, settings)
+                : manifest.isUpToDate(job.inputFile, job.outputFile, settings))) {
+            return false;
+        }
+
+        job.recorded = manifest != null;
+        job.roster = roster;
+        job.metrics = new ConversionMetrics(job.inputFile, job.outputFile);
+        job.reader.setMetrics(job.metrics);
+        job.exporter.setMetrics(job.metrics);
+        return true;
+    }
+
+    /**
+     * Parse stage: read the selected sheets of the input
+     */
+    private void parse(Job job) throws IOException {
+        if (job.recorded) {
+            // Before reading, a save during the conversion must not be recorded as converted. Hashed here
+            // rather than during discovery, so changed files are hashed by all parse threads at once
+            job.inputState = ConversionManifest.InputState.of(job.inputFile);
+        }
+        if (job.reader.getSheetSelection().isFirstOnly()) {
+            job.table = job.reader.readTable(job.inputFile.toString());
+        } else {
+            job.tables = job.reader.readSheets(job.inputFile.toString());
+        }
+        if (job.roster != null) {
+            // Before sorting, the roster's departments and names decide the order
+            job.unmatched = new ArrayList<>();
+            for (GradeTable table : job.table != null ? List.of(job.table) : job.tables.values()) {
+                job.unmatched.addAll(job.roster.join(table));
+            }
+        }
+        job.metrics.endStage(); // The next stage may run on another thread
+    }
+
+    /**
+     * Sort stage: order the rows of every table
+     */
+    private void sort(Job job) {
+        if (job.table != null) {
+            job.order = job.exporter.sortOrder(job.table);
+        } else {
+            job.orders = new HashMap<>();
+            for (Map.Entry<String, GradeTable> sheet : job.tables.entrySet()) {
+                job.orders.put(sheet.getKey(), job.exporter.sortOrder(sheet.getValue()));
+            }
+        }
+        job.metrics.endStage();
+    }
+
+    /**
+     * Export stage: write the output files and record them
+     */
+    private ConversionResult export(Job job, ConversionManifest manifest, String settings) throws IOException {
+        Files.createDirectories(job.outputDir); // A subfolder of the batch's output folder
+        if (job.table != null) {
+            job.exporter.exportSorted(job.outputFile.toString(), job.table, job.order, headers);
+            job.rows = job.table.size();
+        } else {
+            if (job.sheetFiles) {
+                job.outputFiles = new ArrayList<>();
+                for (Map.Entry<String, GradeTable> sheet : job.tables.entrySet()) {
+                    Path sheetFile = outputFileFor(job.inputFile, sheet.getKey(), job.outputDir, outputExtension);
+                    job.exporter.exportSorted(sheetFile.toString(), sheet.getValue(), job.orders.get(sheet.getKey()),
+                            headers);
+                    job.outputFiles.add(sheetFile);
+                }
+                job.outputFile = job.outputFiles.get(0);
+            } else {
+                job.exporter.exportSheetsSorted(job.outputFile.toString(), job.tables, job.orders, headers);
+            }
+            for (GradeTable table : job.tables.values()) {
+                job.rows += table.size();
+            }
+        }
+
+        if (manifest != null) {
+            manifest.record(job.inputFile, job.outputFiles, settings, job.inputState);
+        }
+        finishMetrics(job.metrics, true, job.rows, job.inputFile, job.outputFiles);
+        ConversionResult result = ConversionResult.success(job.inputFile, job.outputFile, job.rows,
+                elapsedMillis(job.start));
+        if (scoreSummary) {
+            // Counted from the tables just written, the input is not read again
+            result.setScores(ScoreSummary.FileScores.of(job.table != null ? List.of(job.table) : job.tables.values(),
+                    job.exporter.getThreshold()));
+        }
+        if (job.unmatched != null && !job.unmatched.isEmpty()) {
+            result.setUnmatchedStudents(job.unmatched);
+            List<String> shown = job.unmatched.subList(0, Math.min(job.unmatched.size(), MAX_UNMATCHED_SHOWN));
+            System.err.println(job.unmatched.size() + " students of " + job.inputFile.getFileName()
+                    + " are not on the roster: " + String.join(", ", shown)
+                    + (shown.size() < job.unmatched.size() ? ", ..." : ""));
+        }
+        return result;
+    }
+
+    private ConversionResult failed(Job job, ConversionManifest manifest, Throwable e) {
+        System.err.println("Failed to convert " + job.inputFile + ": " + e);
+        if (manifest != null) {
+            manifest.remove(job.inputFile);
+        }
+        if (job.metrics != null) {
+            finishMetrics(job.metrics, false, job.rows, job.inputFile, job.outputFiles);
+        }
+        Path outputFile = job.outputFile != null ? job.outputFile
+                : outputFileFor(job.inputFile, job.outputDir, outputExtension);
+        // Errors other than running out of memory, e.g. a missing class of a reader, fail only the file
+        Exception error = e instanceof Exception ? (Exception) e : new IllegalStateException(e.toString(), e);
+        return ConversionResult.failure(job.inputFile, outputFile, elapsedMillis(job.start), error);
+    }
+
+    private void finishMetrics(ConversionMetrics metrics, boolean success, int rows,
+                               Path inputFile, List<Path> outputFiles) {
+        long bytesOut = 0;
+        if (success) {
+            for (Path outputFile : outputFiles) {
+                bytesOut += sizeOf(outputFile);
+            }
+        }
+        metrics.finish(success, rows, sizeOf(inputFile), bytesOut);
+        if (metricsListener != null) {
+            metricsListener.fileMeasured(metrics);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Describe everything that changes the output files, used to invalidate incremental results
+     */
+    public String getSettingsFingerprint() {
+        SimpleExcelReader reader = readerFactory.get();
+        ColumnMapping mapping = columnMapping != null ? columnMapping : reader.getColumnMapping();
+        SheetSelection sheets = sheetSelection != null ? sheetSelection : reader.getSheetSelection();
+        // Outputs from before formulas were read as results hold formula text, so they are redone once
+        String fingerprint = exporterFactory.get().getSettingsFingerprint() + ";headers=" + String.join("|", headers)
+                + ";mapping=" + mapping + ";formulas=" + (reader.isEvaluateFormulas() ? "evaluate" : "cached");
+        // Unchanged for the first sheet only, so existing manifests stay valid
+        if (outputExtension != null) {
+            fingerprint += ";output=" + outputExtension;
+        }
+        if (scoreSummary) {
+            // Files skipped before the summary was enabled have no statistics yet
+            fingerprint += ";scoreSummary=true";
+        }
+        if (rosterFile != null) {
+            // A changed roster changes names and departments of every output
+            StudentRoster loaded = roster;
+            fingerprint += ";roster=" + (loaded != null ? loaded.getFingerprint() : rosterFile.toAbsolutePath())
+                    + ";rosterMapping=" + rosterMapping;
+        }
+        return sheets.isFirstOnly() ? fingerprint : fingerprint + ";sheets=" + sheets + ";sheetOutput=" + sheetOutput;
+    }
+
+    /**
+     * Path of the output file written for an input file
+     */
+    public static Path outputFileFor(Path inputFile, Path outputDir) {
+        return outputDir.resolve(OUTPUT_PREFIX + inputFile.getFileName());
+    }
+
+    /**
+     * Path of the output file written for an input file in another format, like "output - nilai.xls.csv".
+     * The input's extension stays in the name, so nilai.xls and nilai.xlsx do not share an output.
+     * @param extension Extension of the output, like ".csv", null to keep the input's
+     */
+    public static Path outputFileFor(Path inputFile, Path outputDir, String extension) {
+        if (extension == null || hasExtension(inputFile, extension)) {
+            return outputFileFor(inputFile, outputDir);
+        }
+        return outputDir.resolve(OUTPUT_PREFIX + inputFile.getFileName() + extension);
+    }
+
+    /**
+     * Path of the output file written for one sheet of an input file with SheetOutput.FILES,
+     * like "output - nilai - Kelas A.xlsx"
+     */
+    public static Path outputFileFor(Path inputFile, String sheetName, Path outputDir) {
+        return outputFileFor(inputFile, sheetName, outputDir, null);
+    }
+
+    /**
+     * Like outputFileFor(inputFile, sheetName, outputDir), in another format. The input's extension stays
+     * in the name like in outputFileFor(inputFile, outputDir, extension): "output - nilai.xls - Kelas A.csv"
+     * @param extension Extension of the output, like ".csv", null to keep the input's
+     */
+    public static Path outputFileFor(Path inputFile, String sheetName, Path outputDir, String extension) {
+        String fileName = inputFile.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
+        if (extension == null || hasExtension(inputFile, extension)) {
+            extension = dot > 0 ? fileName.substring(dot) : "";
+        } else {
+            stem = fileName;
+        }
+        // Sheet names may hold characters that Windows does not allow in file names
+        String safeSheetName = sheetName.replaceAll("[\\\\/:*?\"<>|]", "_");
+        return outputDir.resolve(OUTPUT_PREFIX + stem + " - " + safeSheetName + extension);
+    }
+
+    private static boolean hasExtension(Path file, String extension) {
+        String fileName = file.getFileName().toString();
+        return fileName.regionMatches(true, fileName.length() - extension.length(), extension, 0, extension.length());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set how readers are created, one is created per file
+     */
+    public void setReaderFactory(Supplier<SimpleExcelReader> readerFactory) {
+        this.readerFactory = readerFactory;
+    }
+
+    /**
+     * Set how exporters are created, one is created per file
+     */
+    public void setExporterFactory(Supplier<SimpleExcelExporter> exporterFactory) {
+        this.exporterFactory = exporterFactory;
+    }
+
+    /**
+     * Set the column headers written to every output file
+     */
+    public void setHeaders(List<String> headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Set where every reader takes the output columns from, and use the mapping's names as headers
+     * @param columnMapping The mapping, null to keep the readers' own mapping
+     */
+    public void setColumnMapping(ColumnMapping columnMapping) {
+        this.columnMapping = columnMapping;
+        this.headers = columnMapping != null ? columnMapping.getTargetNames() : DEFAULT_HEADERS;
+    }
+
+    public ColumnMapping getColumnMapping() {
+        return columnMapping;
+    }
+
+    /**
+     * Set which sheets every reader converts, null to keep the readers' own selection
+     * (the first sheet unless the reader factory says otherwise)
+     */
+    public void setSheetSelection(SheetSelection sheetSelection) {
+        this.sheetSelection = sheetSelection;
+    }
+
+    public SheetSelection getSheetSelection() {
+        return sheetSelection;
+    }
+
+    /**
+     * Set where the sheets of a multi-sheet selection go (SheetOutput.SHEETS by default)
+     */
+    public void setSheetOutput(SheetOutput sheetOutput) {
+        this.sheetOutput = sheetOutput;
+    }
+
+    public SheetOutput getSheetOutput() {
+        return sheetOutput;
+    }
+
+    /**
+     * Set the format of the output files by extension: ".xls", ".xlsx" or ".csv".
+     * By default every output has the format of its input.
+     * @param outputExtension The extension, null to keep the input's
+     */
+    public void setOutputExtension(String outputExtension) {
+        if (outputExtension != null && !OUTPUT_EXTENSIONS.contains(outputExtension)) {
+            throw new IllegalArgumentException("Unsupported output format " + outputExtension
+                    + ", use one of " + OUTPUT_EXTENSIONS);
+        }
+        this.outputExtension = outputExtension;
+    }
+
+    public String getOutputExtension() {
+        return outputExtension;
+    }
+
+    /**
+     * Enable or disable incremental conversion (disabled by default)
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * In incremental mode, convert every file again even when its output is still valid (disabled by
+     * default). The manifest is still updated and outputs of deleted inputs are still removed.
+     */
+    public void setReconvertAll(boolean reconvertAll) {
+        this.reconvertAll = reconvertAll;
+    }
+
+    public boolean isReconvertAll() {
+        return reconvertAll;
+    }
+
+    /**
+     * Enable or disable writing ScoreSummary.FILE_NAME into the output folder after every batch
+     * (disabled by default). It holds count, mean, median, min, max and below-threshold counts
+     * per file and per department, for every file converted into the folder.
+     */
+    public void setScoreSummary(boolean scoreSummary) {
+        this.scoreSummary = scoreSummary;
+    }
+
+    public boolean isScoreSummary() {
+        return scoreSummary;
+    }
+
+    /**
+     * Join every converted table with a roster of students, see StudentRoster. The roster is loaded
+     * by the next batch and kept for the following ones until the file changes.
+     * @param rosterFile The roster, null to convert without one
+     * @param rosterMapping Where the student ID, names and department are in the roster,
+     *                      null for StudentRoster.defaultMapping()
+     */
+    public synchronized void setRoster(Path rosterFile, ColumnMapping rosterMapping) {
+        this.rosterFile = rosterFile;
+        this.rosterMapping = rosterMapping != null ? rosterMapping : StudentRoster.defaultMapping();
+        this.roster = null;
+    }
+
+    public Path getRosterFile() {
+        return rosterFile;
+    }
+
+    /**
+     * Set the listener that receives per-file stage metrics, null for none
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Set how many threads run a pipeline stage, by default the parallelism of the engine
+     */
+    public void setStageThreads(PipelineStage stage, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A stage needs at least one thread");
+        }
+        stageThreads[stage.ordinal()] = threads;
+    }
+
+    public int getStageThreads(PipelineStage stage) {
+        return stageThreads[stage.ordinal()];
+    }
+
+    /**
+     * Set how many files may wait in front of each stage, by default the parallelism of the engine.
+     * A file waiting holds its tables in memory
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Number of files waiting in front of a stage in the running batch, 0 when no batch runs
+     */
+    public int getQueueDepth(PipelineStage stage) {
+        StageQueue<Job> queue = runningQueues.get(stage);
+        return queue != null ? queue.depth() : 0;
+    }
+
+    /**
+     * Set how much estimated heap the files of a batch may use together, by default 70% of the
+     * maximum heap. Small files still run with full parallelism, files that do not fit wait until
+     * running ones finish, and a file estimated above the budget runs alone.
+     * @param bytes The budget in bytes
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = new MemoryBudget(bytes);
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget.getBudget();
+    }
+
+    /**
+     * Stop the worker threads, running conversions are allowed to finish
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * One run of the pipeline. The calling thread discovers files and admits them against the memory
+     * budget, then parse, sort and export threads pass them on through the stage queues.
+     */
+    private final class Batch {
+        private final Path inputDir;
+        private final Path outputDir;
+        private final ConversionListener listener;
+        private final ConversionManifest manifest;
+        private final String settings;
+        private final MemoryBudget budget = memoryBudget;
+        private final ConversionResult[] results;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final Map<PipelineStage, StageQueue<Job>> queues = new EnumMap<>(PipelineStage.class);
+        private final List<Future<?>> workers = new ArrayList<>();
+        // Files that ran out of memory, converted alone once the pipeline has drained
+        private final ConcurrentLinkedQueue<Job> retries = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled;
+        private volatile Throwable workerFailure; // Set when a stage thread died, discovery stops then
+        private Thread discoveryThread;
+
+        Batch(int total, Path inputDir, Path outputDir, ConversionListener listener, ConversionManifest manifest,
+              String settings) {
+            this.results = new ConversionResult[total];
+            this.inputDir = inputDir != null ? inputDir.toAbsolutePath().normalize() : null;
+            this.outputDir = outputDir;
+            this.listener = listener;
+            this.manifest = manifest;
+            this.settings = settings;
+            for (PipelineStage stage : PipelineStage.values()) {
+                queues.put(stage, new StageQueue<>(queueCapacity));
+            }
+        }
+
+        void run(List<Path> inputFiles) throws InterruptedException {
+            discoveryThread = Thread.currentThread();
+            runningQueues = queues;
+            startWorkers(PipelineStage.PARSE, PipelineStage.SORT, ConversionEngine.this::parse);
+            startWorkers(PipelineStage.SORT, PipelineStage.EXPORT, ConversionEngine.this::sort);
+            startWorkers(PipelineStage.EXPORT, null, job -> complete(job, export(job, manifest, settings)));
+
+            try {
+                for (int i = 0; i < inputFiles.size(); i++) {
+                    Path inputFile = inputFiles.get(i);
+                    discover(new Job(i, inputFile, outputDirFor(inputFile)));
+                }
+                endOfInput(PipelineStage.PARSE);
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+                // Not on a stage thread: files queued behind the failed one hold budget only those threads
+                // give back, waiting there for the whole budget could wait forever
+                for (Job job = retries.poll(); job != null; job = retries.poll()) {
+                    complete(job, convertFile(job.inputFile, job.outputDir, manifest, settings, budget, true));
+                }
+            } catch (InterruptedException e) {
+                cancelled = true;
+                workers.forEach(worker -> worker.cancel(true));
+                if (workerFailure != null) {
+                    // Woken by the dying worker, not cancelled by the caller
+                    Thread.interrupted();
+                    throw new IllegalStateException("Conversion worker failed", workerFailure);
+                }
+                throw e;
+            } catch (ExecutionException e) {
+                // Stages catch everything they can recover from
+                cancelled = true;
+                workers.forEach(worker -> worker.cancel(true));
+                Thread.interrupted(); // The dying worker may have woken this thread as well
+                throw new IllegalStateException("Conversion worker failed", e.getCause());
+            }
+        }
+
+        /**
+         * The output folder, or the same subfolder of it that the file is in below the input folder
+         */
+        private Path outputDirFor(Path inputFile) {
+            Path parent = inputFile.toAbsolutePath().normalize().getParent();
+            if (inputDir == null || parent == null || !parent.startsWith(inputDir)) {
+                return outputDir;
+            }
+            return outputDir.resolve(inputDir.relativize(parent).toString());
+        }
+
+        /**
+         * Skip the file or admit it and queue it for parsing, waits while the budget or the queue is full
+         */
+        private void discover(Job job) throws InterruptedException {
+            try {
+                if (!prepare(job, manifest, settings)) {
+                    complete(job, job.skipped());
+                    return;
+                }
+            } catch (Throwable e) {
+                complete(job, failed(job, manifest, e));
+                return;
+            }
+            job.budget = budget;
+            job.taken = budget.acquire(job.estimatedHeap());
+            queues.get(PipelineStage.PARSE).put(job);
+        }
+
+        private void startWorkers(PipelineStage stage, PipelineStage next, StageWork work) {
+            StageQueue<Job> queue = queues.get(stage);
+            int threads = stageThreads[stage.ordinal()];
+            AtomicInteger running = new AtomicInteger(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    try {
+                        for (Job job = queue.take(); job != END; job = queue.take()) {
+                            if (process(job, work) && next != null) {
+                                queues.get(next).put(job);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        // Nothing takes this stage's input any more, discovery would wait for budget forever
+                        if (!cancelled && workerFailure == null) {
+                            workerFailure = e;
+                            discoveryThread.interrupt();
+                        }
+                        throw e;
+                    } finally {
+                        // The last thread of a stage ends the input of the next one
+                        if (running.decrementAndGet() == 0 && next != null && !cancelled) {
+                            endOfInput(next);
+                        }
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        private void endOfInput(PipelineStage stage) throws InterruptedException {
+            for (int i = 0; i < stageThreads[stage.ordinal()]; i++) {
+                queues.get(stage).put(END);
+            }
+        }
+
+        /**
+         * Run a stage on a file
+         * @return false when the file left the pipeline, because it failed or ran out of memory and waits
+         *         to be converted again on its own
+         */
+        private boolean process(Job job, StageWork work) {
+            boolean passed = false;
+            try {
+                work.run(job);
+                passed = true;
+            } catch (OutOfMemoryError e) {
+                job.release();
+                System.err.println("Out of memory converting " + job.inputFile
+                        + ", retrying it alone after the batch");
+                retries.add(job);
+            } catch (Throwable e) {
+                complete(job, failed(job, manifest, e));
+            } finally {
+                if (!passed) {
+                    job.release(); // Whatever went wrong, the budget goes back
+                }
+            }
+            return passed;
+        }
+
+        private void complete(Job job, ConversionResult result) {
+            job.release();
+            results[job.index] = result;
+            int done = completed.incrementAndGet();
+            if (listener != null) {
+                try {
+                    listener.fileCompleted(result, done, results.length);
+                } catch (Throwable e) {
+                    // A failing listener must not take the stage thread with it
+                    System.err.println("Conversion listener failed on " + job.inputFile + ": " + e);
+                }
+            }
+        }
+
+        Map<PipelineStage, Integer> maxQueueDepths() {
+            Map<PipelineStage, Integer> depths = new EnumMap<>(PipelineStage.class);
+            queues.forEach((stage, queue) -> depths.put(stage, queue.getMaxDepth()));
+            return depths;
+        }
+    }
+
+    /**
+     * Work of one pipeline stage on a file
+     */
+    private interface StageWork {
+        void run(Job job) throws Exception;
+    }
+
+    /**
+     * A file on its way through the stages, handed from thread to thread through the stage queues
+     */
+    private static final class Job {
+        final int index;
+        final Path inputFile;
+        final Path outputDir;
+        final long start = System.nanoTime();
+
+        Path outputFile;
+        List<Path> outputFiles;
+        SimpleExcelReader reader;
+        SimpleExcelExporter exporter;
+        ConversionMetrics metrics;
+        boolean sheetFiles;
+        GradeTable table;               // The first sheet, when only that one is converted
+        Map<String, GradeTable> tables; // Otherwise every selected sheet by name
+        int[] order;
+        Map<String, int[]> orders;
+        boolean recorded;        // Whether the conversion goes into the manifest
+        ConversionManifest.InputState inputState; // The input before it was read, null without a manifest
+        StudentRoster roster;    // null without a roster
+        List<String> unmatched;  // Students missing from the roster
+        int rows;
+        MemoryBudget budget;
+        long taken; // Share of the budget held by this file
+
+        Job(int index, Path inputFile, Path outputDir) {
+            this.index = index;
+            this.inputFile = inputFile;
+            this.outputDir = outputDir;
+        }
+
+        long estimatedHeap() {
+            return MemoryBudget.estimate(inputFile, sizeOf(inputFile), reader.isStreamingRead());
+        }
+
+        ConversionResult skipped() {
+            return ConversionResult.skipped(inputFile, outputFile, elapsedMillis(start));
+        }
+
+        /**
+         * Drop the tables and give back the budget, the file is done
+         */
+        void release() {
+            table = null;
+            tables = null;
+            order = null;
+            orders = null;
+            if (taken > 0) {
+                budget.release(taken);
+                taken = 0;
+            }
+        }
+    }
+
+    /**
+     * Daemon workers, so an open engine never keeps the application alive
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "conversion-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR events of the converter. They cost next to nothing unless a recording is running,
+ * start one with -XX:StartFlightRecording or jcmd and look under "Exam Result Converter".
+ */
+final class ConversionEvents {
+
+    private ConversionEvents() {
+    }
+
+    @Name("org.example.ConversionStage")
+    @Label("Conversion Stage")
+    @Category("Exam Result Converter")
+    @Description("One stage of converting a file")
+    static class StageEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    @Name("org.example.FileConversion")
+    @Label("File Conversion")
+    @Category("Exam Result Converter")
+    @Description("Outcome of converting a file")
+    static class FileEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Success")
+        boolean success;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Bytes In")
+        @DataAmount
+        long bytesIn;
+
+        @Label("Bytes Out")
+        @DataAmount
+        long bytesOut;
+
+        @Label("Duration (ms)")
+        long durationMillis;
+    }
+}
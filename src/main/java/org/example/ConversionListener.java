@@ -0,0 +1,23 @@
+package org.example;
+
+import java.nio.file.Path;
+
+/**
+ * Receives progress from a ConversionEngine batch. Called from worker threads.
+ */
+public interface ConversionListener {
+
+    /**
+     * Called once for every file of the batch, in completion order
+     * @param result Outcome of the file
+     * @param completed Number of files finished so far, including this one
+     * @param total Number of files in the batch
+     */
+    void fileCompleted(ConversionResult result, int completed, int total);
+
+    /**
+     * Called when an incremental batch deletes the output of an input file that no longer exists
+     */
+    default void orphanRemoved(Path outputFile) {
+    }
+}
@@ -0,0 +1,297 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which input files were converted into an output folder, so unchanged files can be skipped.
+ * Each input is recorded with its size, modification time, SHA-256 content hash, the exporter
+ * settings used and the outputs it produced. The manifest is a tab separated file in the output folder.
+ */
+public class ConversionManifest {
+
+    public static final String FILE_NAME = ".conversion-manifest.tsv";
+    private static final String HEADER = "# conversion manifest v1";
+    private static final String OUTPUT_SEPARATOR = "\n"; // Between the outputs of one input, escaped on disk
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ConversionManifest(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the manifest of an output folder, an empty manifest when there is none yet
+     */
+    public static ConversionManifest load(Path outputDir) throws IOException {
+        ConversionManifest manifest = new ConversionManifest(outputDir.resolve(FILE_NAME));
+        if (!Files.exists(manifest.file)) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(manifest.file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 6) {
+                    System.err.println("Ignoring malformed manifest line in " + manifest.file);
+                    continue;
+                }
+                try {
+                    manifest.entries.put(unescape(fields[0]), new Entry(Long.parseLong(fields[1]),
+                            Long.parseLong(fields[2]), fields[3], unescape(fields[4]),
+                            List.of(unescape(fields[5]).split(OUTPUT_SEPARATOR))));
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring malformed manifest line in " + manifest.file);
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Write the manifest, replacing the previous file in one move
+     */
+    public void save() throws IOException {
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                writer.write(escape(e.getKey()) + "\t" + entry.size + "\t" + entry.lastModified + "\t"
+                        + entry.hash + "\t" + escape(entry.settings) + "\t"
+                        + escape(String.join(OUTPUT_SEPARATOR, entry.outputFiles)));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Check whether the recorded output of an input is still valid.
+     * Size and modification time are compared first, the content hash is only computed
+     * when the file was touched, so re-saving without changes does not trigger a conversion.
+     */
+    public boolean isUpToDate(Path inputFile, Path outputFile, String settings) throws IOException {
+        Entry entry = entries.get(key(inputFile));
+        if (entry == null || !entry.outputFiles.equals(List.of(key(outputFile)))) {
+            return false;
+        }
+        return isUpToDate(inputFile, settings);
+    }
+
+    /**
+     * Check whether the recorded outputs of an input are still valid, whatever they are called.
+     * Used when the output names are only known after reading the input.
+     */
+    public boolean isUpToDate(Path inputFile, String settings) throws IOException {
+        String key = key(inputFile);
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.settings.equals(settings)) {
+            return false;
+        }
+        for (String outputFile : entry.outputFiles) {
+            if (!Files.exists(Path.of(outputFile))) {
+                return false;
+            }
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(inputFile, BasicFileAttributes.class);
+        if (attributes.size() != entry.size) {
+            return false;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (lastModified == entry.lastModified) {
+            return true;
+        }
+
+        if (!hash(inputFile).equals(entry.hash)) {
+            return false;
+        }
+        // Same content, remember the new time so the hash is not computed again
+        entries.put(key, new Entry(entry.size, lastModified, entry.hash, entry.settings, entry.outputFiles));
+        return true;
+    }
+
+    /**
+     * Record a successful conversion of the input as it was when the conversion started. An input saved
+     * again while it was converted then no longer matches its entry and is converted again next time.
+     * Outputs recorded before that the input no longer produces, like the file of a renamed sheet, are deleted.
+     * @param input State of the input taken before it was read
+     */
+    void record(Path inputFile, List<Path> outputFiles, String settings, InputState input) {
+        List<String> keys = new ArrayList<>(outputFiles.size());
+        for (Path outputFile : outputFiles) {
+            keys.add(key(outputFile));
+        }
+        Entry previous = entries.put(key(inputFile), new Entry(input.size, input.lastModified, input.hash, settings,
+                List.copyOf(keys)));
+
+        if (previous != null) {
+            for (String outputFile : previous.outputFiles) {
+                if (!keys.contains(outputFile)) {
+                    deleteOutput(Path.of(outputFile));
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget an input, so it is converted again next time
+     */
+    public void remove(Path inputFile) {
+        entries.remove(key(inputFile));
+    }
+
+    /**
+     * Delete the outputs of inputs that no longer exist and drop their entries
+     * @return The output files that were deleted
+     */
+    public List<Path> removeOrphans() {
+        List<Path> removed = new ArrayList<>();
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> e = iterator.next();
+            if (Files.exists(Path.of(e.getKey()))) {
+                continue;
+            }
+
+            boolean deleted = true;
+            for (String outputFile : e.getValue().outputFiles) {
+                Path output = Path.of(outputFile);
+                if (!Files.exists(output)) {
+                    continue;
+                }
+                if (deleteOutput(output)) {
+                    removed.add(output);
+                } else {
+                    deleted = false;
+                }
+            }
+            if (deleted) {
+                iterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    private static boolean deleteOutput(Path outputFile) {
+        try {
+            Files.deleteIfExists(outputFile);
+            return true;
+        } catch (IOException ex) {
+            System.err.println("Unable to delete output " + outputFile + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * SHA-256 of a file's content, as lowercase hex
+     */
+    static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Tabs, newlines and backslashes escaped for one field of a tab separated line
+     */
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    static String unescape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Size, modification time and content hash of an input file at one moment
+     */
+    static final class InputState {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private InputState(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        /**
+         * Take the state of a file, the attributes before the hash, so a save in between counts as a change
+         */
+        static InputState of(Path inputFile) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(inputFile, BasicFileAttributes.class);
+            return new InputState(attributes.size(), attributes.lastModifiedTime().toMillis(), hash(inputFile));
+        }
+    }
+
+    /**
+     * What was recorded for one input file
+     */
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final String settings;
+        private final List<String> outputFiles;
+
+        private Entry(long size, long lastModified, String hash, String settings, List<String> outputFiles) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.settings = settings;
+            this.outputFiles = outputFiles;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+
+/**
+ * Timings and sizes of one file conversion, broken down by stage.
+ * Stages of a conversion run one at a time. Between stages the engine may hand the file to another
+ * thread, but only after ending the stage in progress, so allocations are counted on the thread
+ * that did the work.
+ * Every stage is also committed as a JFR event, so a recording shows where the time went.
+ */
+public class ConversionMetrics {
+
+    /**
+     * Stages of a conversion, in the order they run
+     */
+    public enum Stage {
+        OPEN("Open"),                 // Opening the workbook: package, shared strings, styles
+        READ("Read"),                 // Extracting the cells of the source columns
+        SORT("Sort"),                 // Sorting by department and full name
+        WRITE_ROWS("Rows"),           // Creating the workbook, styles and output cells
+        SIZE_COLUMNS("Size"),         // Column widths, autoSizeColumn when enabled
+        SAVE("Save");                 // workbook.write to disk
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final int STAGE_COUNT = Stage.values().length;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Path inputFile;
+    private final Path outputFile;
+
+    private final long[] stageNanos = new long[STAGE_COUNT];
+    private final long[] stageAllocatedBytes = new long[STAGE_COUNT];
+    private final long[] stageHeapBytes = new long[STAGE_COUNT];
+
+    private int rowCount;
+    private long bytesIn;
+    private long bytesOut;
+    private boolean success;
+
+    // Stage in progress
+    private Stage currentStage;
+    private long stageStartNanos;
+    private long stageStartAllocated;
+    private ConversionEvents.StageEvent stageEvent;
+
+    public ConversionMetrics(Path inputFile, Path outputFile) {
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * End the stage in progress, if any, and start the given one
+     */
+    public void startStage(Stage stage) {
+        endStage();
+        currentStage = stage;
+        stageEvent = new ConversionEvents.StageEvent();
+        stageEvent.begin();
+        stageStartAllocated = allocatedBytes();
+        stageStartNanos = System.nanoTime();
+    }
+
+    /**
+     * End the stage in progress, does nothing when there is none
+     */
+    public void endStage() {
+        if (currentStage == null) {
+            return;
+        }
+
+        int index = currentStage.ordinal();
+        stageNanos[index] += System.nanoTime() - stageStartNanos;
+        long allocated = allocatedBytes() - stageStartAllocated;
+        stageAllocatedBytes[index] += allocated;
+        stageHeapBytes[index] = Math.max(stageHeapBytes[index], MEMORY.getHeapMemoryUsage().getUsed());
+
+        stageEvent.end();
+        if (stageEvent.shouldCommit()) {
+            stageEvent.file = inputFile.getFileName().toString();
+            stageEvent.stage = currentStage.name();
+            stageEvent.allocatedBytes = allocated;
+            stageEvent.commit();
+        }
+        stageEvent = null;
+        currentStage = null;
+    }
+
+    /**
+     * End the last stage and record the outcome of the conversion
+     */
+    public void finish(boolean success, int rowCount, long bytesIn, long bytesOut) {
+        endStage();
+        this.success = success;
+        this.rowCount = rowCount;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+
+        ConversionEvents.FileEvent event = new ConversionEvents.FileEvent();
+        if (event.shouldCommit()) {
+            event.file = inputFile.toString();
+            event.success = success;
+            event.rows = rowCount;
+            event.bytesIn = bytesIn;
+            event.bytesOut = bytesOut;
+            event.durationMillis = getTotalNanos() / 1_000_000;
+            event.commit();
+        }
+    }
+
+    /**
+     * Bytes allocated by the calling thread so far, -1 when the JVM can't tell
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Bytes allocated by the thread that ran the stage
+     */
+    public long getStageAllocatedBytes(Stage stage) {
+        return stageAllocatedBytes[stage.ordinal()];
+    }
+
+    /**
+     * Heap in use at the end of the stage. The heap is shared by all workers,
+     * so with parallel conversions this includes the other files.
+     */
+    public long getStageHeapBytes(Stage stage) {
+        return stageHeapBytes[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : stageNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    public long getTotalAllocatedBytes() {
+        long total = 0;
+        for (long bytes : stageAllocatedBytes) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * Largest heap use seen at the end of any stage
+     */
+    public long getPeakHeapBytes() {
+        long peak = 0;
+        for (long bytes : stageHeapBytes) {
+            peak = Math.max(peak, bytes);
+        }
+        return peak;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Outcome of converting one input file
+ */
+public class ConversionResult {
+    private final Path inputFile;
+    private final Path outputFile;
+    private final int rowCount;
+    private final long durationMillis;
+    private final Exception error;
+    private final boolean skipped;
+    private ScoreSummary.FileScores scores; // Set when the engine keeps a score summary
+    private List<String> unmatchedStudents = List.of(); // Keys missing from the engine's roster
+
+    private ConversionResult(Path inputFile, Path outputFile, int rowCount, long durationMillis, Exception error,
+                             boolean skipped) {
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.rowCount = rowCount;
+        this.durationMillis = durationMillis;
+        this.error = error;
+        this.skipped = skipped;
+    }
+
+    static ConversionResult success(Path inputFile, Path outputFile, int rowCount, long durationMillis) {
+        return new ConversionResult(inputFile, outputFile, rowCount, durationMillis, null, false);
+    }
+
+    static ConversionResult failure(Path inputFile, Path outputFile, long durationMillis, Exception error) {
+        return new ConversionResult(inputFile, outputFile, 0, durationMillis, error, false);
+    }
+
+    static ConversionResult skipped(Path inputFile, Path outputFile, long durationMillis) {
+        return new ConversionResult(inputFile, outputFile, 0, durationMillis, null, true);
+    }
+
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Number of data rows written, 0 when the conversion failed or was skipped
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * The exception that stopped this file, or null when it was converted
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * True when the existing output was still valid and the file was not converted again
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Score statistics of the converted rows, null unless the engine writes a score summary
+     */
+    ScoreSummary.FileScores getScores() {
+        return scores;
+    }
+
+    void setScores(ScoreSummary.FileScores scores) {
+        this.scores = scores;
+    }
+
+    /**
+     * Students of the converted rows that are not on the engine's roster, empty without a roster
+     */
+    public List<String> getUnmatchedStudents() {
+        return unmatchedStudents;
+    }
+
+    void setUnmatchedStudents(List<String> unmatchedStudents) {
+        this.unmatchedStudents = List.copyOf(unmatchedStudents);
+    }
+
+    @Override
+    public String toString() {
+        if (skipped) {
+            return inputFile.getFileName() + ": up to date";
+        }
+        if (isSuccess()) {
+            String text = inputFile.getFileName() + ": " + rowCount + " rows in " + durationMillis + " ms";
+            return unmatchedStudents.isEmpty() ? text : text + ", " + unmatchedStudents.size() + " not on the roster";
+        }
+        return inputFile.getFileName() + ": FAILED (" + error.getMessage() + ")";
+    }
+}
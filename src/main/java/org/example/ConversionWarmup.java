@@ -0,0 +1,84 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Converts a tiny gradebook bundled with the application, so the class loading and JIT compilation
+ * of POI, XMLBeans and the OOXML schemas happen before the first real conversion instead of during it.
+ * The same conversion is the training run of an AppCDS archive, see Launcher.
+ */
+final class ConversionWarmup {
+
+    // Under /warmup in the jar, laid out like the exam result exports
+    private static final List<String> WORKBOOKS = List.of("nilai.xlsx", "nilai.xls");
+
+    private ConversionWarmup() {
+    }
+
+    /**
+     * Warm up on a low priority daemon thread. A conversion started meanwhile runs normally,
+     * it only finds some classes already loaded.
+     */
+    static void startInBackground() {
+        Thread thread = new Thread(() -> {
+            try {
+                System.err.println("Conversion warmed up in " + run() + " ms");
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Warm-up conversion failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "conversion-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Convert the bundled gradebooks once, with the reader and exporter the GUI uses
+     * @return Milliseconds taken
+     */
+    static long run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Path folder = Files.createTempDirectory("warmup");
+        try (ConversionEngine engine = new ConversionEngine(1)) {
+            List<Path> inputFiles = new ArrayList<>();
+            for (String name : WORKBOOKS) {
+                Path file = folder.resolve(name);
+                try (InputStream in = ConversionWarmup.class.getResourceAsStream("/warmup/" + name)) {
+                    if (in == null) {
+                        throw new IOException("Warm-up workbook " + name + " not found");
+                    }
+                    Files.copy(in, file);
+                }
+                inputFiles.add(file);
+            }
+
+            for (ConversionResult result : engine.convert(inputFiles, folder.resolve("output"), null)) {
+                if (!result.isSuccess()) {
+                    throw new IOException(result.toString());
+                }
+            }
+        } finally {
+            delete(folder);
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void delete(Path folder) {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to delete " + folder + ": " + e.getMessage());
+        }
+    }
+}
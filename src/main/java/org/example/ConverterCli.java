@@ -0,0 +1,545 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Headless batch converter for scheduled and container runs.
+ * Progress goes to stderr, a JSON summary of the batch goes to stdout.
+ * This class must not reference any Swing or AWT class.
+ */
+public class ConverterCli {
+
+    public static final int EXIT_OK = 0;              // Every file converted
+    public static final int EXIT_PARTIAL_FAILURE = 1; // Some files failed
+    public static final int EXIT_USAGE = 2;           // Invalid arguments
+    public static final int EXIT_NO_INPUT = 3;        // Input folder missing or without matching files
+    public static final int EXIT_FAILURE = 4;         // Every file failed, or the batch could not run
+
+    private static final List<String> DEFAULT_FORMATS = List.of("xls", "xlsx");
+
+    private String inputDir;
+    private String outputDir;
+    private int parallelism = ConversionEngine.defaultParallelism();
+    private long memoryBudget; // Bytes, 0 for the engine default
+    private Map<ConversionEngine.PipelineStage, Integer> stageThreads = Map.of(); // Overrides of --parallelism
+    private int queueCapacity; // 0 for the engine default
+    private List<String> formats = DEFAULT_FORMATS;
+    private double threshold = SimpleExcelExporter.MIN_THRESHOLD;
+    private HighlightRules highlight; // Replaces the threshold when given
+    private String summaryFile;
+    private String mappingFile;
+    private String rosterFile;
+    private String rosterMappingFile;
+    private SheetSelection sheets = SheetSelection.FIRST;
+    private ConversionEngine.SheetOutput sheetOutput = ConversionEngine.SheetOutput.SHEETS;
+    private String outputFormat; // Extension like ".csv", null keeps the format of each input
+    private boolean directWriter;
+    private int compressionLevel = SimpleExcelExporter.DEFAULT_COMPRESSION_LEVEL;
+    private boolean evaluateFormulas;
+    private boolean scoreSummary;
+    private boolean recursive;
+    private List<String> includes = List.of();
+    private List<String> excludes = List.of();
+    private boolean incremental;
+    private boolean watch;
+    private boolean metrics;
+    private boolean metricsJson;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(new ConverterCli().run(args, System.out, System.err));
+    }
+
+    /**
+     * Run the converter
+     * @return The process exit code
+     */
+    public int run(String[] args, PrintStream out, PrintStream err) {
+        try {
+            if (!parseArguments(args)) {
+                printUsage(out);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+
+        ColumnMapping mapping = null;
+        if (mappingFile != null) {
+            try {
+                mapping = ColumnMapping.load(Paths.get(mappingFile));
+            } catch (IOException | IllegalArgumentException e) {
+                err.println("Error: invalid column mapping " + mappingFile + ": " + e.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+        ColumnMapping rosterMapping = null;
+        if (rosterMappingFile != null) {
+            try {
+                rosterMapping = ColumnMapping.load(Paths.get(rosterMappingFile), StudentRoster.defaultMapping());
+            } catch (IOException | IllegalArgumentException e) {
+                err.println("Error: invalid roster mapping " + rosterMappingFile + ": " + e.getMessage());
+                return EXIT_USAGE;
+            }
+        }
+
+        List<String> extensions = new ArrayList<>();
+        for (String format : formats) {
+            extensions.add("." + format);
+        }
+        Path output = outputDir != null ? Paths.get(outputDir) : Paths.get(inputDir, "output");
+
+        FolderScanner scanner = new FolderScanner(extensions);
+        scanner.setRecursive(recursive);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.setExcludedDirectory(output);
+        if (rosterFile != null) {
+            // A roster kept in the input folder is not a class export, also when it is saved while watching
+            scanner.setExcludedFile(Paths.get(rosterFile));
+        }
+        List<Path> inputFiles = scanner.scan(Paths.get(inputDir));
+        if (inputFiles.isEmpty() && !watch) {
+            err.println("No " + String.join("/", formats) + " files found in " + inputDir);
+            out.println(summaryJson("no-input", List.of(), 0));
+            return EXIT_NO_INPUT;
+        }
+
+        ConversionListener progress = new ConversionListener() {
+            @Override
+            public void fileCompleted(ConversionResult result, int completed, int total) {
+                err.println("[" + completed + "/" + total + "] " + result);
+            }
+
+            @Override
+            public void orphanRemoved(Path outputFile) {
+                err.println("Removed orphaned output " + outputFile);
+            }
+        };
+
+        try (ConversionEngine engine = new ConversionEngine(parallelism)) {
+            engine.setIncremental(incremental);
+            engine.setScoreSummary(scoreSummary);
+            if (memoryBudget > 0) {
+                engine.setMemoryBudget(memoryBudget);
+            }
+            stageThreads.forEach(engine::setStageThreads);
+            if (queueCapacity > 0) {
+                engine.setQueueCapacity(queueCapacity);
+            }
+            if (mapping != null) {
+                engine.setColumnMapping(mapping);
+            }
+            if (rosterFile != null) {
+                engine.setRoster(Paths.get(rosterFile), rosterMapping);
+            }
+            engine.setSheetSelection(sheets);
+            engine.setReaderFactory(() -> {
+                SimpleExcelReader reader = new SimpleExcelReader();
+                reader.setEvaluateFormulas(evaluateFormulas);
+                return reader;
+            });
+            engine.setSheetOutput(sheetOutput);
+            engine.setOutputExtension(outputFormat);
+            if (metrics) {
+                engine.setMetricsListener(new MetricsReport(err, metricsJson));
+            }
+            engine.setExporterFactory(() -> {
+                SimpleExcelExporter exporter = new SimpleExcelExporter();
+                if (highlight != null) {
+                    exporter.setHighlightRules(highlight);
+                } else {
+                    exporter.setThreshold(threshold);
+                }
+                exporter.setAutoSizeColumns(false); // Avoid AWT font metrics in headless runs
+                exporter.setDirectWriter(directWriter);
+                exporter.setCompressionLevel(compressionLevel);
+                return exporter;
+            });
+
+            long start = System.nanoTime();
+            err.println("Converting " + inputFiles.size() + " files from " + inputDir + " to " + output
+                    + " with " + parallelism + " workers");
+            List<ConversionResult> results = engine.convert(inputFiles, Paths.get(inputDir), output, progress);
+
+            int exitCode = report(results, (System.nanoTime() - start) / 1_000_000, out, err);
+            if (!watch) {
+                return exitCode;
+            }
+
+            FolderWatcher watcher = new FolderWatcher(engine, Paths.get(inputDir), output, scanner);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    watcher.stop();
+                } catch (IOException e) {
+                    // Exiting anyway
+                }
+            }));
+            err.println("Watching " + inputDir + " for changes, press Ctrl+C to stop");
+            watcher.run(progress);
+            return EXIT_OK;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted");
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Print the summary of a batch and work out its exit code
+     */
+    private int report(List<ConversionResult> results, long durationMillis, PrintStream out, PrintStream err) {
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        int exitCode = failed == 0 ? EXIT_OK : failed < results.size() ? EXIT_PARTIAL_FAILURE : EXIT_FAILURE;
+        String status = exitCode == EXIT_OK ? "ok" : exitCode == EXIT_PARTIAL_FAILURE ? "partial" : "failed";
+
+        String summary = summaryJson(status, results, durationMillis);
+        out.println(summary);
+
+        if (summaryFile != null) {
+            try {
+                Files.writeString(Paths.get(summaryFile), summary + System.lineSeparator(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                err.println("Unable to write summary to " + summaryFile + ": " + e.getMessage());
+            }
+        }
+        return exitCode;
+    }
+
+    /**
+     * Parse the command line into the fields
+     * @return false when only the usage was requested
+     */
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = null;
+
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--") && equals > 0) {
+                value = arg.substring(equals + 1);
+                arg = arg.substring(0, equals);
+            }
+
+            if (arg.equals("--help") || arg.equals("-h")) {
+                return false;
+            }
+            if (arg.equals("--incremental")) {
+                incremental = true;
+                continue;
+            }
+            if (arg.equals("--metrics")) {
+                metrics = true;
+                continue;
+            }
+            if (arg.equals("--metrics-json")) {
+                metrics = true;
+                metricsJson = true;
+                continue;
+            }
+            if (arg.equals("--direct-writer")) {
+                directWriter = true;
+                continue;
+            }
+            if (arg.equals("--score-summary")) {
+                scoreSummary = true;
+                continue;
+            }
+            if (arg.equals("--evaluate-formulas")) {
+                evaluateFormulas = true;
+                continue;
+            }
+            if (arg.equals("--recursive")) {
+                recursive = true;
+                continue;
+            }
+            if (arg.equals("--watch")) {
+                // Watching only makes sense incrementally, unchanged files are never rewritten
+                watch = true;
+                incremental = true;
+                continue;
+            }
+
+            if (value == null) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                value = args[++i];
+            }
+
+            switch (arg) {
+                case "--input":
+                    inputDir = value;
+                    break;
+                case "--output":
+                    outputDir = value;
+                    break;
+                case "--parallelism":
+                    parallelism = parseInt(arg, value);
+                    if (parallelism < 1) {
+                        throw new IllegalArgumentException("--parallelism must be at least 1");
+                    }
+                    break;
+                case "--memory-budget":
+                    memoryBudget = parseInt(arg, value) * 1024L * 1024;
+                    if (memoryBudget <= 0) {
+                        throw new IllegalArgumentException("--memory-budget must be at least 1 MB");
+                    }
+                    break;
+                case "--include":
+                    includes = List.of(value.split(","));
+                    break;
+                case "--exclude":
+                    excludes = List.of(value.split(","));
+                    break;
+                case "--stage-threads":
+                    stageThreads = parseStageThreads(value);
+                    break;
+                case "--queue-capacity":
+                    queueCapacity = parseInt(arg, value);
+                    if (queueCapacity < 1) {
+                        throw new IllegalArgumentException("--queue-capacity must be at least 1");
+                    }
+                    break;
+                case "--formats":
+                    formats = parseFormats(value);
+                    break;
+                case "--threshold":
+                    threshold = parseDouble(arg, value);
+                    break;
+                case "--highlight":
+                    highlight = HighlightRules.parse(value);
+                    break;
+                case "--summary":
+                    summaryFile = value;
+                    break;
+                case "--mapping":
+                    mappingFile = value;
+                    break;
+                case "--roster":
+                    rosterFile = value;
+                    break;
+                case "--roster-mapping":
+                    rosterMappingFile = value;
+                    break;
+                case "--sheets":
+                    sheets = SheetSelection.parse(value);
+                    break;
+                case "--output-format":
+                    outputFormat = parseOutputFormat(value);
+                    break;
+                case "--sheet-output":
+                    sheetOutput = parseSheetOutput(value);
+                    break;
+                case "--compression-level":
+                    compressionLevel = parseInt(arg, value);
+                    if (compressionLevel < 0 || compressionLevel > 9) {
+                        throw new IllegalArgumentException("--compression-level must be between 0 and 9");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        if (inputDir == null) {
+            throw new IllegalArgumentException("--input is required");
+        }
+        return true;
+    }
+
+    private static String parseOutputFormat(String value) {
+        String format = value.trim().toLowerCase(Locale.ROOT);
+        String extension = format.startsWith(".") ? format : "." + format;
+        if (!ConversionEngine.OUTPUT_EXTENSIONS.contains(extension)) {
+            throw new IllegalArgumentException("Unsupported --output-format " + value + ", use xls, xlsx or csv");
+        }
+        return extension;
+    }
+
+    private static ConversionEngine.SheetOutput parseSheetOutput(String value) {
+        try {
+            return ConversionEngine.SheetOutput.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid --sheet-output " + value + ", use sheets or files");
+        }
+    }
+
+    /**
+     * Parse thread counts like "parse=2,export=1"
+     */
+    private static Map<ConversionEngine.PipelineStage, Integer> parseStageThreads(String value) {
+        Map<ConversionEngine.PipelineStage, Integer> threads = new EnumMap<>(ConversionEngine.PipelineStage.class);
+        for (String entry : value.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Invalid --stage-threads " + entry + ", use like parse=2,export=1");
+            }
+            String name = entry.substring(0, equals).trim();
+            ConversionEngine.PipelineStage stage;
+            try {
+                stage = ConversionEngine.PipelineStage.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown stage " + name + ", use parse, sort or export");
+            }
+            int count = parseInt("--stage-threads", entry.substring(equals + 1).trim());
+            if (count < 1) {
+                throw new IllegalArgumentException("--stage-threads needs at least one thread per stage");
+            }
+            threads.put(stage, count);
+        }
+        return threads;
+    }
+
+    private static List<String> parseFormats(String value) {
+        List<String> parsed = new ArrayList<>();
+        for (String format : value.split(",")) {
+            format = format.trim().toLowerCase(Locale.ROOT);
+            if (format.startsWith(".")) {
+                format = format.substring(1);
+            }
+            if (!format.equals("xls") && !format.equals("xlsx") && !format.equals("csv")) {
+                throw new IllegalArgumentException("Unsupported format " + format + ", use xls, xlsx or csv");
+            }
+            parsed.add(format);
+        }
+        return parsed;
+    }
+
+    private static int parseInt(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a whole number: " + value);
+        }
+    }
+
+    private static double parseDouble(String option, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * One-line JSON summary of the batch
+     */
+    private String summaryJson(String status, List<ConversionResult> results, long durationMillis) {
+        int converted = 0;
+        int skipped = 0;
+        long rows = 0;
+        StringBuilder files = new StringBuilder();
+
+        for (ConversionResult result : results) {
+            if (files.length() > 0) {
+                files.append(',');
+            }
+            files.append("{\"input\":").append(Json.quote(result.getInputFile().toString()))
+                    .append(",\"output\":").append(Json.quote(result.getOutputFile().toString()))
+                    .append(",\"status\":").append(result.isSkipped() ? "\"skipped\""
+                            : result.isSuccess() ? "\"ok\"" : "\"failed\"")
+                    .append(",\"rows\":").append(result.getRowCount())
+                    .append(",\"durationMillis\":").append(result.getDurationMillis());
+            if (!result.getUnmatchedStudents().isEmpty()) {
+                files.append(",\"unmatched\":[");
+                for (int i = 0; i < result.getUnmatchedStudents().size(); i++) {
+                    files.append(i > 0 ? "," : "").append(Json.quote(result.getUnmatchedStudents().get(i)));
+                }
+                files.append(']');
+            }
+            if (!result.isSuccess()) {
+                files.append(",\"error\":").append(Json.quote(String.valueOf(result.getError())));
+            }
+            files.append('}');
+
+            if (result.isSkipped()) {
+                skipped++;
+            } else if (result.isSuccess()) {
+                converted++;
+                rows += result.getRowCount();
+            }
+        }
+
+        return "{\"status\":" + Json.quote(status)
+                + ",\"input\":" + Json.quote(inputDir)
+                + ",\"files\":" + results.size()
+                + ",\"converted\":" + converted
+                + ",\"skipped\":" + skipped
+                + ",\"failed\":" + (results.size() - converted - skipped)
+                + ",\"rows\":" + rows
+                + ",\"durationMillis\":" + durationMillis
+                + ",\"results\":[" + files + "]}";
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: java -jar XlsReportConverter.jar --input <folder> [options]");
+        out.println();
+        out.println("Options:");
+        out.println("  --input <folder>       Folder with the exam result files (required)");
+        out.println("  --output <folder>      Output folder (default: <input>/output)");
+        out.println("  --parallelism <n>      Files converted at the same time (default: number of CPUs)");
+        out.println("  --stage-threads <list> Threads per pipeline stage, like parse=2,sort=1,export=2"
+                + " (default: --parallelism for each)");
+        out.println("  --queue-capacity <n>   Files that may wait in front of each stage (default: --parallelism)");
+        out.println("  --memory-budget <MB>   Estimated heap the running files may use together, large files"
+                + " wait for room (default: 70% of the maximum heap)");
+        out.println("  --formats <list>       Input formats to convert, comma separated: xls, xlsx, csv"
+                + " (default: xls,xlsx)");
+        out.println("  --output-format <fmt>  Write every output as xls, xlsx or csv (default: the format of"
+                + " the input)");
+        out.println("  --recursive            Also convert files in subfolders, outputs go to the same subfolders"
+                + " of the output folder");
+        out.println("  --include <globs>      Only convert files matching these globs, comma separated, like"
+                + " \"kelas-7/**,*.xlsx\"");
+        out.println("  --exclude <globs>      Skip files matching these globs, like \"*remedial*\"");
+        out.println("  --threshold <score>    Highlight rows scoring below this (default: "
+                + SimpleExcelExporter.MIN_THRESHOLD + ")");
+        out.println("  --highlight <bands>    Highlight score bands instead, like 60:RED:WHITE,78:LIGHT_ORANGE"
+                + " (below:fill[:bold font color])");
+        out.println("  --summary <file>       Also write the JSON summary to this file");
+        out.println("  --score-summary        Write " + ScoreSummary.FILE_NAME + " to the output folder: score"
+                + " statistics per file and per department");
+        out.println("  --mapping <file>       Column mapping properties: source columns, names and types"
+                + " of the output columns");
+        out.println("  --roster <file>        Master roster workbook or CSV: replace first name, full name and"
+                + " department of every student by its row, matched on the first output column");
+        out.println("  --roster-mapping <file> Column mapping of the roster (default: ID, first name, full name"
+                + " and department in columns A to D)");
+        out.println("  --sheets <list>        Sheets to convert: first (default), all, or positions and names,"
+                + " comma separated, * and ? match any text");
+        out.println("  --sheet-output <mode>  With several sheets: sheets (one output sheet per input sheet,"
+                + " default) or files (one file per sheet)");
+        out.println("  --evaluate-formulas    Recalculate formula cells instead of using the results saved"
+                + " with the file, loads whole workbooks");
+        out.println("  --direct-writer        Write .xlsx files directly instead of through POI, faster for"
+                + " large files");
+        out.println("  --compression-level <n> Deflate level of --direct-writer, 0 (none) to 9 (smallest)"
+                + " (default: " + SimpleExcelExporter.DEFAULT_COMPRESSION_LEVEL + ")");
+        out.println("  --incremental          Skip files whose output is still up to date");
+        out.println("  --metrics              Print a table of per-stage timings and sizes after every batch");
+        out.println("  --metrics-json         Like --metrics, and also write it to "
+                + MetricsReport.JSON_FILE_NAME + " in the output folder");
+        out.println("  --watch                After the first batch, keep converting files as they are saved"
+                + " (implies --incremental)");
+        out.println("  --help                 Show this help");
+        out.println();
+        out.println("Exit codes: 0 all converted, 1 some files failed, 2 invalid arguments,");
+        out.println("            3 no input files, 4 all files failed or the batch could not run");
+    }
+}
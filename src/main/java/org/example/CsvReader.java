@@ -0,0 +1,290 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Reads CSV exports of learning management systems, parsing the memory-mapped file byte by byte.
+ * The file is not copied onto the heap and only the projected columns are decoded into strings,
+ * like the streaming Excel readers do.
+ * The text is UTF-8 (a byte order mark is skipped), fields are separated by a comma, semicolon or tab,
+ * whichever the header line uses most, and quoted like RFC 4180. Values are trimmed, and values that
+ * are plain numbers are passed as numbers. Numbers with leading zeros or other formatting stay text,
+ * so identifiers like "007" keep their zeros.
+ */
+public class CsvReader {
+
+    public static final String EXTENSION = ".csv";
+
+    private static final byte QUOTE = '"';
+    private static final byte[] DELIMITERS = {',', ';', '\t'};
+
+    private ConversionMetrics metrics; // Marks where opening ends and reading starts, may be null
+
+    /**
+     * Read a CSV file, skipping its first line (the header)
+     * @param filePath Path of the .csv file
+     * @param columns Source column indices to project, in output order
+     * @param handler Receives one call per data row
+     */
+    public void read(String filePath, int[] columns, RowHandler handler) throws IOException {
+        read(filePath, ColumnProjection.of(columns), handler);
+    }
+
+    /**
+     * Read a CSV file, skipping its first line (the header)
+     * @param projection Source columns to decode, possibly picked from the header line
+     */
+    void read(String filePath, ColumnProjection projection, RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(filePath + " is larger than 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (metrics != null) {
+                metrics.startStage(ConversionMetrics.Stage.READ);
+            }
+            new Parser(buffer, projection, handler).parse();
+        }
+    }
+
+    /**
+     * Read a CSV file as a workbook with one sheet, named after the file without its extension
+     * @return Number of sheets read, 0 when the selection does not include the sheet
+     */
+    int readSheets(String filePath, SheetSelection selection, Function<String, ? extends SheetRows> sheets)
+            throws IOException {
+        String name = sheetName(Paths.get(filePath));
+        if (!selection.matches(0, name)) {
+            return 0;
+        }
+        SheetRows rows = sheets.apply(name);
+        read(filePath, rows, rows);
+        return 1;
+    }
+
+    static String sheetName(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    /**
+     * Record the start of the READ stage into the given metrics, null to stop
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Parses one mapped file. Reads the buffer with absolute gets, decoding a field only when its
+     * column is projected.
+     */
+    private static final class Parser {
+        private final MappedByteBuffer buffer;
+        private final int limit;
+        private final ColumnProjection projection;
+        private final RowHandler handler;
+        private byte delimiter;
+
+        // Maps a source column index to its position in the projection, -1 when not projected
+        private int[] slotByColumn = new int[0];
+        private String[] values = new String[0];
+        private double[] numbers = new double[0];
+
+        // Bytes of the field being decoded, quotes removed
+        private byte[] field = new byte[256];
+        private int fieldLength;
+
+        Parser(MappedByteBuffer buffer, ColumnProjection projection, RowHandler handler) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            this.projection = projection;
+            this.handler = handler;
+        }
+
+        void parse() {
+            int pos = skipByteOrderMark();
+            delimiter = detectDelimiter(pos);
+            String[] header = projection.needsHeader() ? new String[0] : null;
+            if (header == null) {
+                project(projection.resolve(null));
+            }
+
+            boolean headerLine = true;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b == '\r' || b == '\n') {
+                    pos++; // Blank line, Excel has no row for it either
+                    continue;
+                }
+
+                Arrays.fill(values, "");
+                for (int column = 0; ; column++) {
+                    int slot = headerLine ? -1 : column < slotByColumn.length ? slotByColumn[column] : -1;
+                    boolean decode = slot >= 0 || (headerLine && header != null);
+                    pos = readField(pos, decode);
+
+                    if (headerLine && header != null) {
+                        if (column >= header.length) {
+                            header = Arrays.copyOf(header, column + 1);
+                        }
+                        header[column] = text();
+                    } else if (slot >= 0) {
+                        String value = text();
+                        double number = ValueClassifier.parseNumber(value);
+                        // Only values that read back the same, "007" or "1.50" stay text
+                        if (!Double.isNaN(number) && ValueClassifier.formatNumber(number).equals(value)) {
+                            values[slot] = null;
+                            numbers[slot] = number;
+                        } else {
+                            values[slot] = value;
+                        }
+                    }
+
+                    if (pos < limit && buffer.get(pos) == delimiter) {
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+                pos = skipLineEnd(pos);
+
+                if (!headerLine) {
+                    handler.row(values, numbers);
+                } else if (header != null) {
+                    project(projection.resolve(header));
+                    header = null;
+                }
+                headerLine = false;
+            }
+        }
+
+        private void project(int[] columns) {
+            values = new String[columns.length];
+            numbers = new double[columns.length];
+
+            int maxColumn = Arrays.stream(columns).max().orElse(-1);
+            slotByColumn = new int[maxColumn + 1];
+            Arrays.fill(slotByColumn, -1);
+            for (int i = 0; i < columns.length; i++) {
+                slotByColumn[columns[i]] = i;
+            }
+        }
+
+        /**
+         * Scan one field
+         * @param decode Whether to collect its bytes into field, otherwise it is only skipped
+         * @return Position of the delimiter or line end after the field, or the limit
+         */
+        private int readField(int pos, boolean decode) {
+            fieldLength = 0;
+            if (pos < limit && buffer.get(pos) == QUOTE) {
+                pos++;
+                while (pos < limit) {
+                    byte b = buffer.get(pos++);
+                    if (b != QUOTE) {
+                        if (decode) {
+                            append(b);
+                        }
+                    } else if (pos < limit && buffer.get(pos) == QUOTE) {
+                        if (decode) {
+                            append(QUOTE); // "" inside quotes
+                        }
+                        pos++;
+                    } else {
+                        break; // Closing quote
+                    }
+                }
+            }
+
+            // Unquoted text, or text after a closing quote which spreadsheet applications keep as well
+            int start = pos;
+            while (pos < limit && !isFieldEnd(buffer.get(pos))) {
+                pos++;
+            }
+            if (decode && pos > start) {
+                ensureCapacity(fieldLength + pos - start);
+                buffer.get(start, field, fieldLength, pos - start);
+                fieldLength += pos - start;
+            }
+            return pos;
+        }
+
+        private boolean isFieldEnd(byte b) {
+            // Bytes of multi-byte UTF-8 characters are never ASCII, so they cannot match
+            return b == delimiter || b == '\n' || b == '\r';
+        }
+
+        private void append(byte b) {
+            ensureCapacity(fieldLength + 1);
+            field[fieldLength++] = b;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > field.length) {
+                field = Arrays.copyOf(field, Math.max(capacity, field.length * 2));
+            }
+        }
+
+        private String text() {
+            return new String(field, 0, fieldLength, StandardCharsets.UTF_8).trim();
+        }
+
+        private int skipLineEnd(int pos) {
+            if (pos < limit && buffer.get(pos) == '\r') {
+                pos++;
+            }
+            if (pos < limit && buffer.get(pos) == '\n') {
+                pos++;
+            }
+            return pos;
+        }
+
+        private int skipByteOrderMark() {
+            if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+                    && buffer.get(2) == (byte) 0xBF) {
+                return 3;
+            }
+            return 0;
+        }
+
+        /**
+         * The delimiter the header line uses most, a comma when it has none of them
+         */
+        private byte detectDelimiter(int pos) {
+            int[] counts = new int[DELIMITERS.length];
+            boolean quoted = false;
+            for (; pos < limit; pos++) {
+                byte b = buffer.get(pos);
+                if (b == QUOTE) {
+                    quoted = !quoted;
+                } else if (!quoted && (b == '\n' || b == '\r')) {
+                    break;
+                } else if (!quoted) {
+                    for (int i = 0; i < DELIMITERS.length; i++) {
+                        if (b == DELIMITERS[i]) {
+                            counts[i]++;
+                        }
+                    }
+                }
+            }
+
+            int best = 0;
+            for (int i = 1; i < DELIMITERS.length; i++) {
+                if (counts[i] > counts[best]) {
+                    best = i;
+                }
+            }
+            return DELIMITERS[best];
+        }
+    }
+}
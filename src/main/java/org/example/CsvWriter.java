@@ -0,0 +1,143 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a table as UTF-8 CSV for systems that import CSV rather than workbooks. Characters are encoded
+ * straight into a large direct buffer, which goes to the file channel whenever it fills up, so a row
+ * costs no intermediate strings or byte arrays. Fields are comma separated, quoted like RFC 4180 when
+ * needed, and lines end with CRLF.
+ */
+final class CsvWriter implements Closeable {
+
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int MAX_BYTES_PER_CHAR = 4; // A surrogate pair counts as two chars of 4 bytes
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    CsvWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write a header line, when given, and the rows of a table in the given order
+     */
+    void writeTable(GradeTable table, int[] order, List<String> headers) throws IOException {
+        if (headers != null && !headers.isEmpty()) {
+            for (int i = 0; i < Math.min(GradeTable.COLUMN_COUNT, headers.size()); i++) {
+                if (i > 0) {
+                    put((byte) ',');
+                }
+                writeField(headers.get(i));
+            }
+            endLine();
+        }
+
+        for (int row : order) {
+            for (int col = 0; col < GradeTable.COLUMN_COUNT; col++) {
+                if (col > 0) {
+                    put((byte) ',');
+                }
+                // Numeric scores are formatted like the cell shows them, no quoting needed
+                writeField(table.getText(row, col));
+            }
+            endLine();
+        }
+    }
+
+    /**
+     * Write a field, quoted when it holds a comma, quote or line break
+     */
+    private void writeField(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = needsQuotes(value);
+        if (quote) {
+            put((byte) '"');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer.remaining() < MAX_BYTES_PER_CHAR + 1) {
+                flush();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    buffer.put((byte) '"');
+                }
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?'); // Unpaired surrogate, like String.getBytes
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        if (quote) {
+            put((byte) '"');
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        // Leading or trailing spaces are trimmed by many importers
+        return value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ';
+    }
+
+    private void endLine() throws IOException {
+        put((byte) '\r');
+        put((byte) '\n');
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(b);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write what is still buffered and close the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
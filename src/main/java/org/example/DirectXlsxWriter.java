@@ -0,0 +1,345 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes exported grade tables as .xlsx without the POI object model: the package parts are written
+ * straight into a ZipOutputStream, rows are streamed as sheet XML and the styles are fixed (default,
+ * header, bordered data cell, plus one differential style per highlight band). Text goes into a
+ * shared string table that is written after the sheets, names and departments repeat a lot.
+ * Produces the same cells, widths and conditional formatting as SimpleExcelExporter's POI path.
+ */
+final class DirectXlsxWriter implements Closeable {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    // Cell style indices in cellXfs
+    private static final int HEADER_STYLE = 1;
+    private static final int NORMAL_STYLE = 2;
+
+    private static final String[] COLUMN_NAMES = {"A", "B", "C", "D", "E"};
+    private static final int SCORE_COLUMN = 4;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final HighlightRules rules;
+    private final List<String> sheetNames = new ArrayList<>();
+
+    // Shared string table: index by text, and the texts in index order
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private int stringReferences;
+
+    /**
+     * Create a writer
+     * @param output Stream of the .xlsx file, closed by close()
+     * @param compressionLevel Deflate level, 0 (store) to 9 (smallest), or -1 for the zlib default
+     * @param rules Highlight bands of every sheet
+     */
+    DirectXlsxWriter(OutputStream output, int compressionLevel, HighlightRules rules) {
+        this.zip = new ZipOutputStream(new BufferedOutputStream(output, 64 * 1024));
+        this.zip.setLevel(compressionLevel);
+        this.out = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        this.rules = rules;
+    }
+
+    /**
+     * Stream one sheet
+     * @param name Valid, unique sheet name
+     * @param order Row indices in the order they are written
+     * @param headers Header texts, null for no header row
+     * @param columnWidths Width of each column in 1/256 of a character
+     */
+    void writeSheet(String name, GradeTable table, int[] order, List<String> headers, int[] columnWidths)
+            throws IOException {
+        sheetNames.add(name);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+
+        out.write(XML_DECLARATION);
+        out.write("<worksheet xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\">");
+        out.write(sheetNames.size() == 1 ? "<sheetViews><sheetView tabSelected=\"1\" workbookViewId=\"0\"/></sheetViews>"
+                : "<sheetViews><sheetView workbookViewId=\"0\"/></sheetViews>");
+        out.write("<sheetFormatPr defaultRowHeight=\"15\"/><cols>");
+        for (int i = 0; i < columnWidths.length; i++) {
+            out.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + columnWidths[i] / 256.0
+                    + "\" customWidth=\"1\"/>");
+        }
+        out.write("</cols><sheetData>");
+
+        int rowNum = 0;
+        if (headers != null && !headers.isEmpty()) {
+            rowNum++;
+            startRow(rowNum);
+            for (int col = 0; col < Math.min(COLUMN_NAMES.length, headers.size()); col++) {
+                writeString(col, rowNum, HEADER_STYLE, headers.get(col));
+            }
+            out.write("</row>");
+        }
+        int firstDataRow = rowNum;
+
+        for (int index : order) {
+            rowNum++;
+            startRow(rowNum);
+            for (int col = 0; col < COLUMN_NAMES.length; col++) {
+                if (col == SCORE_COLUMN && table.hasNumericScore(index)) {
+                    writeNumber(col, rowNum, table.getScore(index));
+                    continue;
+                }
+                String value = table.getText(index, col);
+                if (value != null) {
+                    writeValue(col, rowNum, value);
+                }
+            }
+            out.write("</row>");
+        }
+        out.write("</sheetData>");
+
+        if (rowNum > firstDataRow) {
+            // Same rules HighlightRules.apply adds through POI
+            String range = "A" + (firstDataRow + 1) + ":" + COLUMN_NAMES[COLUMN_NAMES.length - 1] + rowNum;
+            String score = "$" + COLUMN_NAMES[SCORE_COLUMN] + (firstDataRow + 1);
+            for (int i = 0; i < rules.getBands().size(); i++) {
+                out.write("<conditionalFormatting sqref=\"" + range + "\"><cfRule type=\"expression\" dxfId=\"" + i
+                        + "\" priority=\"" + (i + 1) + "\"><formula>");
+                writeEscaped(rules.formula(i, score));
+                out.write("</formula></cfRule></conditionalFormatting>");
+            }
+        }
+        out.write("<pageMargins left=\"0.7\" right=\"0.7\" top=\"0.75\" bottom=\"0.75\" header=\"0.3\" footer=\"0.3\"/>");
+        out.write("</worksheet>");
+        closeEntry();
+    }
+
+    private void startRow(int rowNum) throws IOException {
+        out.write("<row r=\"");
+        out.write(Integer.toString(rowNum));
+        out.write("\">");
+    }
+
+    /**
+     * Write a text value typed like SimpleExcelExporter.setCellValue: numbers, booleans or text
+     */
+    private void writeValue(int col, int rowNum, String value) throws IOException {
+        if (!value.isEmpty()) {
+            double number = ValueClassifier.parseNumber(value);
+            if (!Double.isNaN(number)) {
+                writeNumber(col, rowNum, number);
+                return;
+            }
+            int bool = ValueClassifier.parseBoolean(value);
+            if (bool != ValueClassifier.NOT_BOOLEAN) {
+                startCell(col, rowNum, NORMAL_STYLE);
+                out.write(" t=\"b\"><v>");
+                out.write(bool == ValueClassifier.TRUE ? '1' : '0');
+                out.write("</v></c>");
+                return;
+            }
+        }
+        writeString(col, rowNum, NORMAL_STYLE, value);
+    }
+
+    private void writeNumber(int col, int rowNum, double number) throws IOException {
+        startCell(col, rowNum, NORMAL_STYLE);
+        out.write("><v>");
+        out.write(Double.toString(number));
+        out.write("</v></c>");
+    }
+
+    private void writeString(int col, int rowNum, int style, String value) throws IOException {
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = strings.size();
+            stringIndex.put(value, index);
+            strings.add(value);
+        }
+        stringReferences++;
+
+        startCell(col, rowNum, style);
+        out.write(" t=\"s\"><v>");
+        out.write(Integer.toString(index));
+        out.write("</v></c>");
+    }
+
+    private void startCell(int col, int rowNum, int style) throws IOException {
+        out.write("<c r=\"");
+        out.write(COLUMN_NAMES[col]);
+        out.write(Integer.toString(rowNum));
+        out.write("\" s=\"");
+        out.write(Integer.toString(style));
+        out.write('"');
+    }
+
+    /**
+     * Write text as XML content, characters XML cannot hold become '?' like in POI's streaming writer
+     */
+    private void writeEscaped(String text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement;
+            switch (c) {
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '"':
+                    replacement = "&quot;";
+                    break;
+                case '\t':
+                case '\n':
+                case '\r':
+                    continue;
+                default:
+                    if (c >= 0x20 && c != 0xFFFE && c != 0xFFFF) {
+                        continue;
+                    }
+                    replacement = "?";
+                    break;
+            }
+            out.write(text, start, i - start);
+            out.write(replacement);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+    }
+
+    /**
+     * Write the workbook parts that list the sheets, after the last sheet
+     */
+    void finish() throws IOException {
+        StringBuilder contentTypes = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        StringBuilder workbook = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\">")
+                .append("<bookViews><workbookView/></bookViews><sheets>");
+        StringBuilder workbookRels = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(PACKAGE_REL_NS).append("\">");
+
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            workbook.append("<sheet name=\"").append(escape(sheetNames.get(i - 1))).append("\" sheetId=\"").append(i)
+                    .append("\" r:id=\"rId").append(i).append("\"/>");
+            workbookRels.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"").append(REL_NS).append("/worksheet\" Target=\"worksheets/sheet").append(i)
+                    .append(".xml\"/>");
+        }
+        workbookRels.append("<Relationship Id=\"rId").append(sheetNames.size() + 1)
+                .append("\" Type=\"").append(REL_NS).append("/styles\" Target=\"styles.xml\"/>")
+                .append("<Relationship Id=\"rId").append(sheetNames.size() + 2)
+                .append("\" Type=\"").append(REL_NS).append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+        contentTypes.append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/")
+                .append("vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+
+        writeSharedStrings();
+        writeEntry("xl/styles.xml", styles());
+        writeEntry("xl/workbook.xml", workbook.append("</sheets></workbook>").toString());
+        writeEntry("xl/_rels/workbook.xml.rels", workbookRels.append("</Relationships>").toString());
+        writeEntry("_rels/.rels", XML_DECLARATION + "<Relationships xmlns=\"" + PACKAGE_REL_NS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        writeEntry("[Content_Types].xml", contentTypes.append("</Types>").toString());
+        zip.finish();
+    }
+
+    private void writeSharedStrings() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+        out.write(XML_DECLARATION);
+        out.write("<sst xmlns=\"" + MAIN_NS + "\" count=\"" + stringReferences + "\" uniqueCount=\"" + strings.size()
+                + "\">");
+        for (String value : strings) {
+            boolean preserve = !value.isEmpty() && (Character.isWhitespace(value.charAt(0))
+                    || Character.isWhitespace(value.charAt(value.length() - 1)));
+            out.write(preserve ? "<si><t xml:space=\"preserve\">" : "<si><t>");
+            writeEscaped(value);
+            out.write("</t></si>");
+        }
+        out.write("</sst>");
+        closeEntry();
+    }
+
+    /**
+     * The fixed styles of SimpleExcelExporter (grey bold header, thin borders) and a differential
+     * style per highlight band
+     */
+    private String styles() {
+        String thinBorder = "<border><left style=\"thin\"/><right style=\"thin\"/><top style=\"thin\"/>"
+                + "<bottom style=\"thin\"/><diagonal/></border>";
+        StringBuilder styles = new StringBuilder(XML_DECLARATION)
+                .append("<styleSheet xmlns=\"").append(MAIN_NS).append("\">")
+                .append("<fonts count=\"2\">")
+                .append("<font><sz val=\"11\"/><color theme=\"1\"/><name val=\"Calibri\"/><family val=\"2\"/>")
+                .append("<scheme val=\"minor\"/></font>")
+                .append("<font><b/><sz val=\"11\"/><color theme=\"1\"/><name val=\"Calibri\"/><family val=\"2\"/>")
+                .append("<scheme val=\"minor\"/></font></fonts>")
+                .append("<fills count=\"3\"><fill><patternFill patternType=\"none\"/></fill>")
+                .append("<fill><patternFill patternType=\"gray125\"/></fill>")
+                .append("<fill><patternFill patternType=\"solid\"><fgColor indexed=\"22\"/><bgColor indexed=\"64\"/>")
+                .append("</patternFill></fill></fills>")
+                .append("<borders count=\"2\"><border><left/><right/><top/><bottom/><diagonal/></border>")
+                .append(thinBorder).append("</borders>")
+                .append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>")
+                .append("<cellXfs count=\"3\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>")
+                .append("<xf numFmtId=\"0\" fontId=\"1\" fillId=\"2\" borderId=\"1\" xfId=\"0\" applyFont=\"1\"")
+                .append(" applyFill=\"1\" applyBorder=\"1\"/>")
+                .append("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyBorder=\"1\"/>")
+                .append("</cellXfs>")
+                .append("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>");
+
+        List<HighlightRules.Band> bands = rules.getBands();
+        styles.append("<dxfs count=\"").append(bands.size()).append("\">");
+        for (HighlightRules.Band band : bands) {
+            styles.append("<dxf>");
+            if (band.getFont() != null) {
+                styles.append("<font><b/><color indexed=\"").append(band.getFont().getIndex()).append("\"/></font>");
+            }
+            styles.append("<fill><patternFill patternType=\"solid\"><bgColor indexed=\"")
+                    .append(band.getFill().getIndex()).append("\"/></patternFill></fill></dxf>");
+        }
+        return styles.append("</dxfs></styleSheet>").toString();
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        closeEntry();
+    }
+
+    private void closeEntry() throws IOException {
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -7,8 +7,12 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class ExamResultConverter {
     private JButton inputFolderButton;
@@ -17,9 +21,12 @@ public class ExamResultConverter {
     private JTextField outputTxt;
     private JButton convertButton;
     private JPanel panel1;
+    private JCheckBox scoreSummaryCheckBox;
+    private JCheckBox reconvertAllCheckBox;
     private JFileChooser fileChooser;
-    SimpleExcelReader reader = new SimpleExcelReader();
-    SimpleExcelExporter exporter = new SimpleExcelExporter();
+    private ConversionEngine engine; // Created by the first conversion, opening the window loads no POI class
+    // Shared by the folder check and the conversion, so the folder is only listed again when it changed
+    private final FolderScanner scanner = new FolderScanner();
 
     public ExamResultConverter() {
         inputFolderButton.addActionListener(new ActionListener() {
@@ -35,7 +42,8 @@ public class ExamResultConverter {
                     String folderPath = fileChooser.getSelectedFile().toString();
                     inputTxt.setText(folderPath);
                     setOutputTxt(folderPath);
-                    boolean hasExcelFiles = ExcelFileChecker.hasExcelFiles(folderPath);
+                    scanner.setExcludedDirectory(Paths.get(outputTxt.getText()));
+                    boolean hasExcelFiles = scanner.hasFiles(Paths.get(folderPath));
 
                     String message;
                     if (hasExcelFiles) {
@@ -54,15 +62,8 @@ public class ExamResultConverter {
         convertButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                try {
-                    convertMultipleExcelFiles(getExcelFileNames(inputTxt.getText()), inputTxt.getText());
-                    String message = "File excel nilai asesmen sumatif berhasil dikonversi";
-                    JOptionPane.showMessageDialog(null, message, "Excel Files Check",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    viewOutputFolderButton.setEnabled(true);
-                } catch (IOException ex) {
-                    throw new RuntimeException(ex);
-                }
+                scanner.setExcludedDirectory(Paths.get(outputTxt.getText()));
+                convertMultipleExcelFiles(scanner.scan(Paths.get(inputTxt.getText())), inputTxt.getText());
             }
         });
 
@@ -79,8 +80,21 @@ public class ExamResultConverter {
     }
 
     public static void main(String[] args) {
-        ExamResultConverter examResultConverter = new ExamResultConverter();
-        examResultConverter.createAndShowGUI();
+        // Show the window first, POI is loaded and warmed up in the background once it is visible
+        SwingUtilities.invokeLater(() -> {
+            ExamResultConverter examResultConverter = new ExamResultConverter();
+            examResultConverter.createAndShowGUI();
+            ConversionWarmup.startInBackground();
+        });
+    }
+
+    private ConversionEngine engine() {
+        if (engine == null) {
+            engine = new ConversionEngine();
+            // Only files changed since the last run are converted again
+            engine.setIncremental(true);
+        }
+        return engine;
     }
 
     private void createAndShowGUI() {
@@ -102,60 +116,90 @@ public class ExamResultConverter {
         frame.setVisible(true);
     }
 
-    private static List<String> getExcelFileNames(String folderPath) {
-        List<String> excelFileNames = new ArrayList<>();
-
-        // Check if the provided path is a valid directory
-        File folder = new File(folderPath);
-
-        if (!folder.exists() || !folder.isDirectory()) {
-            System.err.println("The provided path is not a valid directory: " + folderPath);
-            return excelFileNames; // Return empty list
+    /**
+     * Convert the files on the engine's worker pool, the event dispatch thread only shows progress
+     */
+    private void convertMultipleExcelFiles(List<Path> inputFiles, String folderPath) {
+        Path outputDir = Paths.get(outputTxt.getText());
+        ConversionEngine engine = engine();
+        // Department heads read the statistics of all classes from one workbook, when they ask for it
+        engine.setScoreSummary(scoreSummaryCheckBox.isSelected());
+        // After changing the exporter or fixing an output by hand, unchanged files need converting too
+        engine.setReconvertAll(reconvertAllCheckBox.isSelected());
+
+        // A column-mapping.properties in the input folder overrides the default columns
+        Path mappingFile = Paths.get(folderPath, ColumnMapping.DEFAULT_FILE_NAME);
+        try {
+            engine.setColumnMapping(Files.isRegularFile(mappingFile) ? ColumnMapping.load(mappingFile) : null);
+        } catch (IOException | IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(null, "Pemetaan kolom " + mappingFile + " tidak valid: " + ex.getMessage(),
+                    "Excel Files Check", JOptionPane.ERROR_MESSAGE);
+            return;
         }
 
-        // Define Excel file extensions (both .xls and .xlsx)
-        String[] excelExtensions = {".xls", ".xlsx", ".xlsm", ".xlsb"};
+        ProgressMonitor progressMonitor = new ProgressMonitor(panel1, "Mengonversi file nilai asesmen sumatif",
+                "", 0, inputFiles.size());
+        progressMonitor.setMillisToDecideToPopup(0);
+        convertButton.setEnabled(false);
 
-        // List all files in the directory
-        File[] files = folder.listFiles();
+        new SwingWorker<List<ConversionResult>, ConversionResult>() {
+            private int completed;
 
-        if (files == null) {
-            System.err.println("Unable to read directory: " + folderPath);
-            return excelFileNames; // Return empty list
-        }
-
-        // Check each file for Excel extensions
-        for (File file : files) {
-            if (file.isFile()) {
-                String fileName = file.getName();
-                String fileNameLower = fileName.toLowerCase();
+            @Override
+            protected List<ConversionResult> doInBackground() throws Exception {
+                return engine.convert(inputFiles, Paths.get(folderPath), outputDir,
+                        (result, done, total) -> publish(result));
+            }
 
-                for (String extension : excelExtensions) {
-                    if (fileNameLower.endsWith(extension)) {
-                        excelFileNames.add(fileName); // Add the original file name
-                        break; // No need to check other extensions for this file
-                    }
-                }
+            @Override
+            protected void process(List<ConversionResult> results) {
+                completed += results.size();
+                progressMonitor.setProgress(completed);
+                progressMonitor.setNote(results.get(results.size() - 1).getInputFile().getFileName().toString());
             }
-        }
 
-        return excelFileNames;
-    }
+            @Override
+            protected void done() {
+                progressMonitor.close();
+                convertButton.setEnabled(true);
 
-    private void convertMultipleExcelFiles(List<String> excelFiles, String folderPath) throws IOException {
-        for(String fileName: excelFiles){
-            String fullPath = folderPath + "\\" + fileName;
-            List<List<String>> originalData = reader.readColumns(fullPath);
+                List<ConversionResult> results;
+                try {
+                    results = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex instanceof ExecutionException ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(null, "Konversi gagal: " + cause.getMessage(),
+                            "Excel Files Check", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
 
-            File directory = new File(outputTxt.getText());
-            directory.mkdirs();
-            exporter.exportWithHeaders(outputTxt.getText() + "output - " + fileName, originalData,
-                    "Last Name", "First Name", "Full Name", "Department", "Grade/100.00");
-        }
+                List<ConversionResult> failed = new ArrayList<>();
+                for (ConversionResult result : results) {
+                    if (!result.isSuccess()) {
+                        failed.add(result);
+                    }
+                }
 
+                if (failed.isEmpty()) {
+                    String message = "File excel nilai asesmen sumatif berhasil dikonversi";
+                    JOptionPane.showMessageDialog(null, message, "Excel Files Check",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    StringBuilder message = new StringBuilder();
+                    message.append(failed.size()).append(" dari ").append(results.size())
+                            .append(" file gagal dikonversi:");
+                    for (ConversionResult result : failed) {
+                        message.append("\n").append(result);
+                    }
+                    JOptionPane.showMessageDialog(null, message.toString(), "Excel Files Check",
+                            JOptionPane.WARNING_MESSAGE);
+                }
+                viewOutputFolderButton.setEnabled(true);
+            }
+        }.execute();
     }
 
     private void setOutputTxt(String inputFolder){
-        outputTxt.setText(inputFolder + "\\output\\");
+        outputTxt.setText(Paths.get(inputFolder, "output").toString());
     }
 }
@@ -1,7 +1,12 @@
 package org.example;
 
-import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 
+/**
+ * Shortcuts for one-off folder checks, see FolderScanner for recursion, filters and cached scans
+ */
 public class ExcelFileChecker {
 
     /**
@@ -10,39 +15,16 @@ public class ExcelFileChecker {
      * @return true if the folder contains Excel files, false otherwise
      */
     public static boolean hasExcelFiles(String folderPath) {
-        // Check if the provided path is a valid directory
-        File folder = new File(folderPath);
-
-        if (!folder.exists() || !folder.isDirectory()) {
-            System.err.println("The provided path is not a valid directory: " + folderPath);
-            return false;
-        }
-
-        // Define Excel file extensions (both .xls and .xlsx)
-        String[] excelExtensions = {".xls", ".xlsx", ".xlsm", ".xlsb"};
-
-        // List all files in the directory
-        File[] files = folder.listFiles();
-
-        if (files == null) {
-            System.err.println("Unable to read directory: " + folderPath);
-            return false;
-        }
-
-        // Check each file for Excel extensions
-        for (File file : files) {
-            if (file.isFile()) {
-                String fileName = file.getName().toLowerCase();
-
-                for (String extension : excelExtensions) {
-                    if (fileName.endsWith(extension)) {
-                        return true; // Found at least one Excel file
-                    }
-                }
-            }
-        }
-
-        return false; // No Excel files found
+        return new FolderScanner().hasFiles(Paths.get(folderPath));
     }
 
-}
\ No newline at end of file
+    /**
+     * Lists the files of a folder that have one of the given extensions
+     * @param folderPath The folder to list
+     * @param extensions Extensions to include, like ".xlsx"
+     * @return Matching files, largest first, empty if the folder cannot be read
+     */
+    public static List<Path> listExcelFiles(String folderPath, List<String> extensions) {
+        return new FolderScanner(extensions).scan(Paths.get(folderPath));
+    }
+}
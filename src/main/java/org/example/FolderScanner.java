@@ -0,0 +1,282 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Finds the exam result files of a folder in a single pass, optionally including subfolders such as
+ * one folder per grade. Excel lock and temporary files are skipped, and include and exclude globs
+ * like "kelas-7/**" or "*remedial*" match the path relative to the folder or the file name.
+ * Files are ordered by size, largest first, so the longest conversions start early.
+ * The last scan is kept and reused until one of the scanned folders changes, so checking a folder
+ * and then converting it lists it only once.
+ */
+public class FolderScanner {
+
+    public static final List<String> EXCEL_EXTENSIONS = List.of(".xls", ".xlsx", ".xlsm", ".xlsb");
+
+    private final List<String> extensions;
+    private boolean recursive;
+    private List<PathMatcher> includes = List.of();
+    private List<PathMatcher> excludes = List.of();
+    private Path excludedDirectory; // The output folder, never scanned
+    private Path excludedFile; // A file kept among the inputs that is not one, like the roster
+
+    private Scan lastScan;
+
+    /**
+     * Create a scanner for all Excel files
+     */
+    public FolderScanner() {
+        this(EXCEL_EXTENSIONS);
+    }
+
+    /**
+     * Create a scanner
+     * @param extensions Extensions of the files to find, like ".xlsx"
+     */
+    public FolderScanner(List<String> extensions) {
+        List<String> lower = new ArrayList<>();
+        for (String extension : extensions) {
+            lower.add(extension.toLowerCase(Locale.ROOT));
+        }
+        this.extensions = List.copyOf(lower);
+    }
+
+    /**
+     * Find the files of a folder, reusing the previous scan when nothing changed
+     * @return Matching files, largest first, empty if the folder cannot be read
+     */
+    public synchronized List<Path> scan(Path folder) {
+        Path key = folder.toAbsolutePath().normalize();
+        if (lastScan != null && lastScan.key.equals(key) && lastScan.isCurrent()) {
+            return lastScan.files;
+        }
+
+        if (!Files.isDirectory(folder)) {
+            System.err.println("The provided path is not a valid directory: " + folder);
+            lastScan = null;
+            return List.of();
+        }
+
+        // Walk the folder as given, so the files are relative or absolute like the folder
+        Scan scan = new Scan(key, folder);
+        try {
+            Files.walkFileTree(folder, EnumSet.noneOf(FileVisitOption.class), recursive ? Integer.MAX_VALUE : 1,
+                    scan);
+        } catch (IOException e) {
+            System.err.println("Unable to read directory: " + folder);
+            lastScan = null;
+            return List.of();
+        }
+
+        scan.found.sort(Comparator.comparingLong((Map.Entry<Path, Long> file) -> file.getValue()).reversed()
+                .thenComparing(Map.Entry::getKey));
+        List<Path> files = new ArrayList<>(scan.found.size());
+        for (Map.Entry<Path, Long> file : scan.found) {
+            files.add(file.getKey());
+        }
+        scan.files = Collections.unmodifiableList(files);
+        scan.found = null;
+        lastScan = scan;
+        return scan.files;
+    }
+
+    /**
+     * Whether a folder holds at least one matching file
+     */
+    public boolean hasFiles(Path folder) {
+        return !scan(folder).isEmpty();
+    }
+
+    /**
+     * Whether a file is one Excel or LibreOffice keeps open while editing, never a real workbook
+     */
+    public static boolean isTemporaryFile(String fileName) {
+        return fileName.startsWith("~$") || fileName.startsWith(".~lock");
+    }
+
+    /**
+     * Whether a file of a folder, or of one of its subfolders, is one the scanner would find
+     */
+    public boolean accepts(Path folder, Path file) {
+        return matches(folder.toAbsolutePath().normalize(), file.toAbsolutePath().normalize());
+    }
+
+    private boolean matches(Path root, Path file) {
+        String fileName = file.getFileName().toString();
+        if (isTemporaryFile(fileName)) {
+            return false;
+        }
+        Path absolute = file.toAbsolutePath().normalize();
+        if (absolute.equals(excludedFile) || (excludedDirectory != null && absolute.startsWith(excludedDirectory))) {
+            return false;
+        }
+        String fileNameLower = fileName.toLowerCase(Locale.ROOT);
+        if (extensions.stream().noneMatch(fileNameLower::endsWith)) {
+            return false;
+        }
+
+        Path relative = root.relativize(file);
+        if (!includes.isEmpty() && !matchesAny(includes, relative)) {
+            return false;
+        }
+        return !matchesAny(excludes, relative);
+    }
+
+    private static boolean matchesAny(List<PathMatcher> matchers, Path relative) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relative) || matcher.matches(relative.getFileName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<PathMatcher> globs(List<String> patterns) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (!pattern.isBlank()) {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern.trim()));
+            }
+        }
+        return List.copyOf(matchers);
+    }
+
+    /**
+     * Enable or disable scanning subfolders (disabled by default)
+     */
+    public synchronized void setRecursive(boolean recursive) {
+        this.recursive = recursive;
+        lastScan = null;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Only find files matching one of these globs, an empty list finds every file
+     */
+    public synchronized void setIncludes(List<String> patterns) {
+        this.includes = globs(patterns);
+        lastScan = null;
+    }
+
+    /**
+     * Skip files matching one of these globs
+     */
+    public synchronized void setExcludes(List<String> patterns) {
+        this.excludes = globs(patterns);
+        lastScan = null;
+    }
+
+    /**
+     * Never scan this folder, used for an output folder inside the input folder
+     */
+    public synchronized void setExcludedDirectory(Path excludedDirectory) {
+        Path normalized = excludedDirectory != null ? excludedDirectory.toAbsolutePath().normalize() : null;
+        if (!Objects.equals(normalized, this.excludedDirectory)) {
+            this.excludedDirectory = normalized;
+            lastScan = null;
+        }
+    }
+
+    /**
+     * Whether the scanner looks into a folder: the folder it scans and, when recursive, its subfolders
+     * except the excluded one
+     */
+    public synchronized boolean scansDirectory(Path folder, Path directory) {
+        Path root = folder.toAbsolutePath().normalize();
+        Path dir = directory.toAbsolutePath().normalize();
+        if (dir.equals(root)) {
+            return true;
+        }
+        if (!recursive || !dir.startsWith(root)) {
+            return false;
+        }
+        return excludedDirectory == null || !dir.startsWith(excludedDirectory);
+    }
+
+    /**
+     * Never find this file, used for a roster kept in the input folder
+     */
+    public synchronized void setExcludedFile(Path excludedFile) {
+        Path normalized = excludedFile != null ? excludedFile.toAbsolutePath().normalize() : null;
+        if (!Objects.equals(normalized, this.excludedFile)) {
+            this.excludedFile = normalized;
+            lastScan = null;
+        }
+    }
+
+    /**
+     * Files and folders of one scan. Adding, removing or renaming a file changes the modification
+     * time of its folder, which is how a kept scan notices it is out of date.
+     */
+    private final class Scan extends SimpleFileVisitor<Path> {
+        private final Path key; // Absolute folder
+        private final Path root; // Folder as given
+        private final Map<Path, FileTime> directories = new HashMap<>();
+        private List<Map.Entry<Path, Long>> found = new ArrayList<>(); // File and size, while scanning
+        private List<Path> files;
+
+        private Scan(Path key, Path root) {
+            this.key = key;
+            this.root = root;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+            if (excludedDirectory != null && dir.toAbsolutePath().normalize().equals(excludedDirectory)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            directories.put(dir, attributes.lastModifiedTime());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            // Without recursion, subfolders are visited like files
+            if (attributes.isRegularFile() && matches(root, file)) {
+                found.add(Map.entry(file, attributes.size()));
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            System.err.println("Unable to read " + file + ": " + e.getMessage());
+            return FileVisitResult.CONTINUE;
+        }
+
+        private boolean isCurrent() {
+            for (Map.Entry<Path, FileTime> directory : directories.entrySet()) {
+                try {
+                    if (!Files.getLastModifiedTime(directory.getKey()).equals(directory.getValue())) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches an input folder and converts workbooks shortly after they are saved.
+ * Events for a file are debounced until it has been quiet for a while and its size stopped
+ * changing, and every file that became ready at the same time is converted as one batch.
+ * With a recursive scanner every subfolder is watched as well, including ones created later.
+ */
+public class FolderWatcher {
+
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 2000;
+
+    private final ConversionEngine engine;
+    private final Path inputDir;
+    private final Path outputDir;
+    private final FolderScanner scanner;
+
+    private long quietPeriodMillis = DEFAULT_QUIET_PERIOD_MILLIS;
+    private volatile WatchService watchService;
+
+    // Files waiting for their quiet period to pass
+    private final Map<Path, Pending> pending = new HashMap<>();
+    // Watched folders by key, events name files relative to their folder
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Create a watcher
+     * @param engine Engine used for the conversions
+     * @param inputDir Folder to watch (not its subfolders)
+     * @param outputDir Folder for the output files
+     * @param extensions Extensions of the files to convert, like ".xlsx"
+     */
+    public FolderWatcher(ConversionEngine engine, Path inputDir, Path outputDir, List<String> extensions) {
+        this(engine, inputDir, outputDir, new FolderScanner(extensions));
+    }
+
+    /**
+     * Create a watcher that converts the files a scanner finds, in the subfolders too when it is recursive
+     * @param scanner Decides which files and folders are watched
+     */
+    public FolderWatcher(ConversionEngine engine, Path inputDir, Path outputDir, FolderScanner scanner) {
+        this.engine = engine;
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.scanner = scanner;
+    }
+
+    /**
+     * Watch until stop() is called or the thread is interrupted
+     * @param listener Receives the result of every conversion, may be null
+     */
+    public void run(ConversionListener listener) throws IOException, InterruptedException {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            watchService = service;
+            directories.clear();
+            register(service, inputDir);
+
+            while (true) {
+                WatchKey key;
+                try {
+                    key = pending.isEmpty() ? service.take()
+                            : service.poll(millisUntilNextDeadline(), TimeUnit.MILLISECONDS);
+                } catch (ClosedWatchServiceException e) {
+                    return; // stop() was called
+                }
+
+                if (key != null) {
+                    Path directory = directories.get(key);
+                    if (directory != null) {
+                        handleEvents(service, key, directory);
+                    }
+                    if (!key.reset()) {
+                        directories.remove(key);
+                        if (inputDir.equals(directory)) {
+                            System.err.println("Watched folder is no longer accessible: " + inputDir);
+                            return;
+                        }
+                    }
+                }
+
+                List<Path> ready = collectReadyFiles();
+                if (!ready.isEmpty()) {
+                    try {
+                        engine.convert(ready, inputDir, outputDir, listener);
+                    } catch (IOException e) {
+                        // Keep watching, the output folder may come back
+                        System.err.println("Unable to convert into " + outputDir + ": " + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            watchService = null;
+        }
+    }
+
+    /**
+     * Stop a running watcher, a batch that already started is finished first
+     */
+    public void stop() throws IOException {
+        WatchService service = watchService;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    /**
+     * Watch a folder and, with a recursive scanner, every subfolder it scans
+     */
+    private void register(WatchService service, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                if (!scanner.scansDirectory(inputDir, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                directories.put(dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                System.err.println("Unable to watch " + file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void handleEvents(WatchService service, WatchKey key, Path directory) {
+        long now = System.currentTimeMillis();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, queue every matching file, unchanged ones are skipped when incremental
+                queueAllFiles(now);
+                continue;
+            }
+
+            Path file = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)
+                    && scanner.scansDirectory(inputDir, file)) {
+                watchNewDirectory(service, file, now);
+                continue;
+            }
+            if (!isWatchedFile(file)) {
+                continue;
+            }
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pending.remove(file);
+            } else {
+                // Every new event restarts the quiet period of the file
+                pending.put(file, new Pending(now + quietPeriodMillis, sizeOf(file)));
+            }
+        }
+    }
+
+    /**
+     * Watch a folder created or moved into the input folder, and queue the files it already holds,
+     * they may have arrived before it was watched
+     */
+    private void watchNewDirectory(WatchService service, Path directory, long now) {
+        try {
+            register(service, directory);
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.filter(Files::isRegularFile).filter(this::isWatchedFile)
+                        .forEach(file -> pending.put(file, new Pending(now + quietPeriodMillis, sizeOf(file))));
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to watch " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private void queueAllFiles(long now) {
+        for (Path file : scanner.scan(inputDir)) {
+            pending.put(file, new Pending(now + quietPeriodMillis, sizeOf(file)));
+        }
+    }
+
+    /**
+     * Take the files whose quiet period is over and that look completely written
+     */
+    private List<Path> collectReadyFiles() {
+        long now = System.currentTimeMillis();
+        List<Path> ready = new ArrayList<>();
+
+        for (Map.Entry<Path, Pending> entry : new ArrayList<>(pending.entrySet())) {
+            Path file = entry.getKey();
+            Pending state = entry.getValue();
+            if (state.deadline > now) {
+                continue;
+            }
+
+            if (!Files.exists(file)) {
+                pending.remove(file);
+                continue;
+            }
+
+            long size = sizeOf(file);
+            if (size != state.size || !isReadable(file)) {
+                // Still being written, wait another quiet period
+                pending.put(file, new Pending(now + quietPeriodMillis, size));
+                continue;
+            }
+
+            pending.remove(file);
+            ready.add(file);
+        }
+        return ready;
+    }
+
+    private long millisUntilNextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (Pending state : pending.values()) {
+            next = Math.min(next, state.deadline);
+        }
+        return Math.max(1, next - System.currentTimeMillis());
+    }
+
+    private boolean isWatchedFile(Path file) {
+        // Lock files and temporary save files are skipped by the scanner
+        return scanner.accepts(inputDir, file);
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Excel on Windows keeps the file locked while saving, opening it fails until it is done
+     */
+    private static boolean isReadable(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.read() >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Set how long a file must be left alone before it is converted
+     */
+    public void setQuietPeriodMillis(long quietPeriodMillis) {
+        this.quietPeriodMillis = quietPeriodMillis;
+    }
+
+    public long getQuietPeriodMillis() {
+        return quietPeriodMillis;
+    }
+
+    private static final class Pending {
+        private final long deadline;
+        private final long size;
+
+        private Pending(long deadline, long size) {
+            this.deadline = deadline;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.example;
+
+import java.text.Collator;
+import java.text.ParseException;
+import java.text.RuleBasedCollator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Orders the rows of a GradeTable by department, then full name, with Indonesian collation.
+ * Rows are grouped by department with a counting sort over the few distinct departments,
+ * and each name gets its sort key once instead of being case folded on every comparison.
+ * Keys are byte arrays: collation keys in general, or the lower case text when every name is
+ * plain ASCII letters, digits and spaces, where both give the same order and folding is much cheaper.
+ */
+final class GradeSorter {
+
+    public static final Locale SORT_LOCALE = Locale.forLanguageTag("id-ID");
+
+    private static final String SPACE_RULE = "& '\u0000' < ' '";
+
+    // Parsing the rules is slow, sorts work on clones since a Collator is not thread safe
+    private static final Collator COLLATOR = createCollator();
+
+    private GradeSorter() {
+    }
+
+    /**
+     * Row indices of the table in sorted order. Rows that compare equal keep their input order
+     * and empty departments or names (null) come first.
+     */
+    static int[] sort(GradeTable table) {
+        int size = table.size();
+        Collator collator = (Collator) COLLATOR.clone();
+
+        // Rank the distinct departments, equal ones (like "IPA" and "ipa") share a rank.
+        // There are only a few, so they always get collation keys, "X-1" style names need them.
+        int[] rankByCode = departmentRanks(table.getDepartments(), collator);
+        int bucketCount = table.getDepartments().size();
+
+        // Counting sort into one bucket per department rank, stable
+        int[] bucketStart = new int[bucketCount + 1];
+        for (int row = 0; row < size; row++) {
+            bucketStart[rankByCode[table.getDepartmentCode(row)] + 1]++;
+        }
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            bucketStart[bucket + 1] += bucketStart[bucket];
+        }
+
+        int[] order = new int[size];
+        int[] next = Arrays.copyOf(bucketStart, bucketCount);
+        for (int row = 0; row < size; row++) {
+            order[next[rankByCode[table.getDepartmentCode(row)]]++] = row;
+        }
+
+        // Full name keys, computed once per row
+        Collator nameCollator = hasPlainNames(table) ? null : collator;
+        byte[][] nameKeys = new byte[size][];
+        for (int row = 0; row < size; row++) {
+            nameKeys[row] = sortKey(nameCollator, table.getFullName(row));
+        }
+
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            sortByName(order, bucketStart[bucket], bucketStart[bucket + 1], nameKeys);
+        }
+        return order;
+    }
+
+    private static Collator createCollator() {
+        Collator collator = Collator.getInstance(SORT_LOCALE);
+        if (collator instanceof RuleBasedCollator) {
+            // The default rules ignore spaces, which would put "Ali Baba" after "Alibaba"
+            // and "Budi 2" after "Budi 10", give the space the lowest primary weight instead
+            try {
+                collator = new RuleBasedCollator(((RuleBasedCollator) collator).getRules() + SPACE_RULE);
+            } catch (ParseException e) {
+                throw new IllegalStateException("Invalid collation rule", e);
+            }
+        }
+        collator.setStrength(Collator.SECONDARY); // Ignore case, keep accents
+        return collator;
+    }
+
+    /**
+     * Sort rank of every department code
+     */
+    private static int[] departmentRanks(List<String> departments, Collator collator) {
+        int count = departments.size();
+        byte[][] keys = new byte[count][];
+        Integer[] codes = new Integer[count];
+        for (int code = 0; code < count; code++) {
+            keys[code] = sortKey(collator, departments.get(code));
+            codes[code] = code;
+        }
+        Arrays.sort(codes, (code1, code2) -> compareKeys(keys[code1], keys[code2]));
+
+        int[] rankByCode = new int[count];
+        int rank = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && compareKeys(keys[codes[i - 1]], keys[codes[i]]) != 0) {
+                rank++;
+            }
+            rankByCode[codes[i]] = rank;
+        }
+        return rankByCode;
+    }
+
+    /**
+     * Sort order[from..to) by name, buckets that are already in order are left alone
+     */
+    private static void sortByName(int[] order, int from, int to, byte[][] nameKeys) {
+        if (isSorted(order, from, to, nameKeys)) {
+            return;
+        }
+
+        Integer[] rows = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            rows[i - from] = order[i];
+        }
+        Arrays.sort(rows, (row1, row2) -> compareKeys(nameKeys[row1], nameKeys[row2]));
+        for (int i = from; i < to; i++) {
+            order[i] = rows[i - from];
+        }
+    }
+
+    private static boolean isSorted(int[] order, int from, int to, byte[][] nameKeys) {
+        for (int i = from + 1; i < to; i++) {
+            if (compareKeys(nameKeys[order[i - 1]], nameKeys[order[i]]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether every full name is plain ASCII letters, digits and spaces
+     */
+    private static boolean hasPlainNames(GradeTable table) {
+        for (int row = 0; row < table.size(); row++) {
+            if (!isPlainText(table.getFullName(row))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPlainText(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sort key of a value, the lower case ASCII bytes when there is no collator
+     */
+    private static byte[] sortKey(Collator collator, String value) {
+        if (value == null) {
+            return null;
+        }
+        if (collator != null) {
+            return collator.getCollationKey(value).toByteArray();
+        }
+
+        byte[] key = new byte[value.length()];
+        for (int i = 0; i < key.length; i++) {
+            char c = value.charAt(i);
+            key[i] = (byte) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        return key;
+    }
+
+    /**
+     * Compare keys with null safety, null first
+     */
+    private static int compareKeys(byte[] key1, byte[] key2) {
+        if (key1 == null && key2 == null) return 0;
+        if (key1 == null) return -1;
+        if (key2 == null) return 1;
+        return Arrays.compareUnsigned(key1, key2);
+    }
+}
@@ -0,0 +1,223 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column oriented table of exam results, the typed form of the 5-column rows
+ * (Last Name, First Name, Full Name, Department, Score).
+ * Scores are kept as primitive doubles and departments are dictionary encoded,
+ * so a table costs a few arrays instead of a list and 5 strings per student.
+ */
+public class GradeTable {
+
+    public static final int COLUMN_COUNT = 5;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int size;
+    private String[] lastNames;
+    private String[] firstNames;
+    private String[] fullNames;
+    private int[] departmentCodes;
+    private double[] scores;      // NaN when the score cell is not a number
+    private String[] scoreTexts;  // Text of non-numeric score cells, allocated on first use
+
+    // Department dictionary, a class has only a handful of distinct values
+    private final List<String> departments = new ArrayList<>();
+    private final Map<String, Integer> departmentLookup = new HashMap<>();
+
+    public GradeTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public GradeTable(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        lastNames = new String[capacity];
+        firstNames = new String[capacity];
+        fullNames = new String[capacity];
+        departmentCodes = new int[capacity];
+        scores = new double[capacity];
+    }
+
+    /**
+     * Append a row with a numeric score
+     */
+    public void addRow(String lastName, String firstName, String fullName, String department, double score) {
+        int row = append(lastName, firstName, fullName, department);
+        scores[row] = score;
+    }
+
+    /**
+     * Append a row whose score cell holds text (or is empty) instead of a number
+     */
+    public void addRow(String lastName, String firstName, String fullName, String department, String scoreText) {
+        int row = append(lastName, firstName, fullName, department);
+        scores[row] = Double.NaN;
+        if (scoreText != null) {
+            if (scoreTexts == null) {
+                scoreTexts = new String[lastNames.length];
+            }
+            scoreTexts[row] = scoreText;
+        }
+    }
+
+    private int append(String lastName, String firstName, String fullName, String department) {
+        if (size == lastNames.length) {
+            grow();
+        }
+        int row = size++;
+        lastNames[row] = lastName;
+        firstNames[row] = firstName;
+        fullNames[row] = fullName;
+        departmentCodes[row] = departmentCode(department);
+        return row;
+    }
+
+    /**
+     * Replace the names and department of a row, like StudentRoster does with the roster's values.
+     * A department that no row uses any more stays in getDepartments()
+     */
+    void setNames(int row, String firstName, String fullName, String department) {
+        if (row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        firstNames[row] = firstName;
+        fullNames[row] = fullName;
+        departmentCodes[row] = departmentCode(department);
+    }
+
+    private int departmentCode(String department) {
+        Integer code = departmentLookup.get(department);
+        if (code == null) {
+            code = departments.size();
+            departments.add(department);
+            departmentLookup.put(department, code);
+        }
+        return code;
+    }
+
+    private void grow() {
+        int capacity = lastNames.length * 2;
+        lastNames = Arrays.copyOf(lastNames, capacity);
+        firstNames = Arrays.copyOf(firstNames, capacity);
+        fullNames = Arrays.copyOf(fullNames, capacity);
+        departmentCodes = Arrays.copyOf(departmentCodes, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        if (scoreTexts != null) {
+            scoreTexts = Arrays.copyOf(scoreTexts, capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getLastName(int row) {
+        return lastNames[row];
+    }
+
+    public String getFirstName(int row) {
+        return firstNames[row];
+    }
+
+    public String getFullName(int row) {
+        return fullNames[row];
+    }
+
+    public String getDepartment(int row) {
+        return departments.get(departmentCodes[row]);
+    }
+
+    /**
+     * Index of the row's department in getDepartments()
+     */
+    public int getDepartmentCode(int row) {
+        return departmentCodes[row];
+    }
+
+    /**
+     * Distinct departments, in order of first appearance
+     */
+    public List<String> getDepartments() {
+        return Collections.unmodifiableList(departments);
+    }
+
+    public boolean hasNumericScore(int row) {
+        return !Double.isNaN(scores[row]);
+    }
+
+    /**
+     * The numeric score, NaN when the score cell is not a number
+     */
+    public double getScore(int row) {
+        return scores[row];
+    }
+
+    /**
+     * Text of a non-numeric score cell, null when the score is numeric or the cell is missing
+     */
+    public String getScoreText(int row) {
+        return scoreTexts == null ? null : scoreTexts[row];
+    }
+
+    /**
+     * Value of a column as text, the way readColumns has always returned it
+     */
+    public String getText(int row, int column) {
+        switch (column) {
+            case 0:
+                return lastNames[row];
+            case 1:
+                return firstNames[row];
+            case 2:
+                return fullNames[row];
+            case 3:
+                return getDepartment(row);
+            case 4:
+                return hasNumericScore(row) ? SimpleExcelReader.formatNumber(scores[row]) : getScoreText(row);
+            default:
+                throw new IndexOutOfBoundsException("Column " + column + " of " + COLUMN_COUNT);
+        }
+    }
+
+    /**
+     * Adapter to the list form used by the original reader and exporter API
+     */
+    public List<List<String>> toRows() {
+        List<List<String>> rows = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            List<String> rowData = new ArrayList<>(COLUMN_COUNT);
+            for (int col = 0; col < COLUMN_COUNT; col++) {
+                rowData.add(getText(row, col));
+            }
+            rows.add(rowData);
+        }
+        return rows;
+    }
+
+    /**
+     * Build a table from rows in list form. Every value is kept as text, so the exporter
+     * treats it exactly like it treated the list. Missing columns become null, null values "".
+     */
+    public static GradeTable fromRows(List<List<String>> rows) {
+        GradeTable table = new GradeTable(rows.size());
+        for (List<String> rowData : rows) {
+            table.addRow(column(rowData, 0), column(rowData, 1), column(rowData, 2),
+                    column(rowData, 3), column(rowData, 4));
+        }
+        return table;
+    }
+
+    private static String column(List<String> rowData, int column) {
+        if (rowData == null || column >= rowData.size()) {
+            return null;
+        }
+        String value = rowData.get(column);
+        return value != null ? value : "";
+    }
+}
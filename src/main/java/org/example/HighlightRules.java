@@ -0,0 +1,220 @@
+package org.example;
+
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.FontFormatting;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.PatternFormatting;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Score bands that highlight rows, written as conditional formatting of the sheet instead of cell styles,
+ * so Excel updates the highlight when a score is corrected. Each band colors the rows whose score is
+ * below its bound and not below the bound of the band before it; rows without a numeric score are never
+ * highlighted. Parsed from text like:
+ * <pre>
+ * 60:RED:WHITE,78:LIGHT_ORANGE
+ * </pre>
+ * which fills rows below 60 red with a bold white font and rows from 60 to below 78 light orange.
+ * Colors are names of IndexedColors, they work in .xls and .xlsx files alike.
+ */
+public class HighlightRules {
+
+    /**
+     * One score band
+     */
+    public static final class Band {
+        private final double below;
+        private final IndexedColors fill;
+        private final IndexedColors font; // null keeps the font
+
+        /**
+         * Create a band
+         * @param below Rows scoring below this are in the band, unless an earlier band takes them
+         * @param fill Background of the rows
+         * @param font Color of a bold font, null to keep the font as it is
+         */
+        public Band(double below, IndexedColors fill, IndexedColors font) {
+            if (Double.isNaN(below) || Double.isInfinite(below)) {
+                throw new IllegalArgumentException("Band bound must be a finite number");
+            }
+            if (fill == null) {
+                throw new IllegalArgumentException("Band needs a fill color");
+            }
+            this.below = below;
+            this.fill = fill;
+            this.font = font;
+        }
+
+        public double getBelow() {
+            return below;
+        }
+
+        public IndexedColors getFill() {
+            return fill;
+        }
+
+        public IndexedColors getFont() {
+            return font;
+        }
+
+        @Override
+        public String toString() {
+            String text = number(below) + ":" + fill;
+            return font != null ? text + ":" + font : text;
+        }
+    }
+
+    private final List<Band> bands;
+
+    /**
+     * Create rules from bands in any order, no two bands may have the same bound
+     */
+    public HighlightRules(List<Band> bands) {
+        List<Band> sorted = new ArrayList<>(bands);
+        sorted.sort(Comparator.comparingDouble(Band::getBelow));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).below == sorted.get(i - 1).below) {
+                throw new IllegalArgumentException("Two bands end at " + number(sorted.get(i).below));
+            }
+        }
+        this.bands = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * The original highlight: rows below the threshold get a red fill and a bold white font
+     */
+    public static HighlightRules below(double threshold) {
+        return new HighlightRules(List.of(new Band(threshold, IndexedColors.RED, IndexedColors.WHITE)));
+    }
+
+    /**
+     * Parse bands like "60:RED:WHITE,78:LIGHT_ORANGE", see the class comment
+     * @throws IllegalArgumentException if a band is invalid
+     */
+    public static HighlightRules parse(String text) {
+        List<Band> bands = new ArrayList<>();
+        for (String entry : text.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String[] parts = entry.split(":");
+            if (parts.length < 2 || parts.length > 3) {
+                throw new IllegalArgumentException("Invalid band \"" + entry + "\", use <below>:<fill>[:<font>]");
+            }
+
+            double below;
+            try {
+                below = Double.parseDouble(parts[0].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid band bound \"" + parts[0].trim() + "\"");
+            }
+            bands.add(new Band(below, color(parts[1]), parts.length > 2 ? color(parts[2]) : null));
+        }
+        return new HighlightRules(bands);
+    }
+
+    private static IndexedColors color(String name) {
+        try {
+            return IndexedColors.valueOf(name.trim().toUpperCase(Locale.ROOT).replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown color \"" + name.trim() + "\", use a name like RED,"
+                    + " LIGHT_ORANGE or YELLOW");
+        }
+    }
+
+    /**
+     * Bands ordered by their bound
+     */
+    public List<Band> getBands() {
+        return bands;
+    }
+
+    /**
+     * Bound of the last band, rows scoring below this are highlighted by some band
+     */
+    public double getThreshold() {
+        return bands.isEmpty() ? Double.NEGATIVE_INFINITY : bands.get(bands.size() - 1).below;
+    }
+
+    /**
+     * Add the bands as conditional formatting over whole rows of a sheet
+     * @param firstRow First data row, zero-based
+     * @param lastRow Last data row, zero-based
+     * @param lastColumn Last column that is highlighted
+     * @param scoreColumn Column holding the score
+     */
+    void apply(Sheet sheet, int firstRow, int lastRow, int lastColumn, int scoreColumn) {
+        if (lastRow < firstRow || bands.isEmpty()) {
+            return;
+        }
+
+        SheetConditionalFormatting formatting = sheet.getSheetConditionalFormatting();
+        CellRangeAddress[] rows = {new CellRangeAddress(firstRow, lastRow, 0, lastColumn)};
+        // Relative to the first row of the range, Excel shifts it for every row
+        String score = "$" + CellReference.convertNumToColString(scoreColumn) + (firstRow + 1);
+
+        for (int i = 0; i < bands.size(); i++) {
+            Band band = bands.get(i);
+            ConditionalFormattingRule rule = formatting.createConditionalFormattingRule(formula(i, score));
+
+            PatternFormatting fill = rule.createPatternFormatting();
+            fill.setFillBackgroundColor(band.fill.getIndex());
+            fill.setFillPattern(PatternFormatting.SOLID_FOREGROUND);
+            if (band.font != null) {
+                FontFormatting font = rule.createFontFormatting();
+                font.setFontColorIndex(band.font.getIndex());
+                font.setFontStyle(false, true);
+            }
+
+            // One rule per formatting, .xls files allow at most three per formatting
+            formatting.addConditionalFormatting(rows, rule);
+        }
+    }
+
+    /**
+     * Formula that is true for rows in a band
+     * @param index Position of the band in getBands()
+     * @param score Reference to the score of the first row, like "$E2"
+     */
+    String formula(int index, String score) {
+        // Blank cells compare as 0 and text as larger than any number, so only numbers qualify
+        String condition = "ISNUMBER(" + score + ")," + score + "<" + number(bands.get(index).below);
+        if (index > 0) {
+            condition += "," + score + ">=" + number(bands.get(index - 1).below);
+        }
+        return "AND(" + condition + ")";
+    }
+
+    /**
+     * A bound as formula text, without exponent or locale specific separators
+     */
+    private static String number(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Canonical text of the rules, parse(toString()) gives the same rules
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Band band : bands) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(band);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package org.example;
+
+/**
+ * Entry point of the executable jar. Without arguments it opens the GUI,
+ * with arguments it runs the headless command line converter and never loads Swing.
+ * With only --train it converts the bundled warm-up gradebook and exits, the training run of an
+ * AppCDS archive: java -XX:ArchiveClassesAtExit=converter.jsa -jar XlsReportConverter.jar --train
+ */
+public class Launcher {
+
+    public static final String TRAIN_OPTION = "--train";
+
+    public static void main(String[] args) {
+        if (args.length == 1 && args[0].equals(TRAIN_OPTION)) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(train());
+        } else if (args.length > 0) {
+            ConverterCli.main(args);
+        } else {
+            ExamResultConverter.main(args);
+        }
+    }
+
+    private static int train() {
+        try {
+            System.err.println("Training run converted the warm-up gradebook in " + ConversionWarmup.run() + " ms");
+            return ConverterCli.EXIT_OK;
+        } catch (Exception e) {
+            System.err.println("Training run failed: " + e.getMessage());
+            return ConverterCli.EXIT_FAILURE;
+        }
+    }
+}
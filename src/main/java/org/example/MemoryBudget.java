@@ -0,0 +1,167 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Admits conversions against a heap budget, so many small files run at full parallelism while large
+ * files, which can need many times their size in heap, run one or a few at a time.
+ * Files are admitted in the order they ask, a large file waiting for room is not overtaken by
+ * smaller ones. Admission also waits while the heap left after the last garbage collection
+ * cannot hold the next file, as long as other conversions are still running and can free memory.
+ */
+final class MemoryBudget {
+
+    // Heap per byte of input, measured with the sample gradebooks including the export
+    private static final int XLSX_STREAMING_FACTOR = 4;
+    private static final int XLS_STREAMING_FACTOR = 6;
+    private static final int XLSX_WORKBOOK_FACTOR = 100; // Shared strings expand a lot
+    private static final int XLS_WORKBOOK_FACTOR = 15;
+    private static final int CSV_FACTOR = 2; // Mapped outside the heap, only projected fields become strings
+    private static final long FILE_OVERHEAD = 4L * 1024 * 1024; // Reader, exporter and buffers
+
+    // How long a waiting file sleeps before checking the heap again, GC frees memory without notice
+    private static final long PRESSURE_RECHECK_MILLIS = 200;
+
+    private final long budget;
+    private long used;
+    private long nextTicket;
+    private long admittedTicket; // The ticket that is first in line
+    private final Set<Long> abandonedTickets = new HashSet<>(); // Interrupted while waiting in line
+    private boolean pressureReported;
+
+    /**
+     * Create a budget
+     * @param budget Bytes of estimated heap that running conversions may use together
+     */
+    MemoryBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * The default budget: 70% of the maximum heap, leaving room for the application itself
+     */
+    static long defaultBudget() {
+        return Runtime.getRuntime().maxMemory() / 10 * 7;
+    }
+
+    /**
+     * Estimated heap needed to convert a file
+     * @param streaming Whether the file is read by the streaming readers or loaded as a workbook
+     */
+    static long estimate(Path file, long fileSize, boolean streaming) {
+        String fileName = file.getFileName().toString();
+        if (fileName.endsWith(CsvReader.EXTENSION)) {
+            return FILE_OVERHEAD + fileSize * CSV_FACTOR;
+        }
+        boolean xlsx = fileName.endsWith(".xlsx");
+        int factor = streaming ? (xlsx ? XLSX_STREAMING_FACTOR : XLS_STREAMING_FACTOR)
+                : (xlsx ? XLSX_WORKBOOK_FACTOR : XLS_WORKBOOK_FACTOR);
+        return FILE_OVERHEAD + fileSize * factor;
+    }
+
+    /**
+     * Wait until a conversion with the given estimated cost may run
+     * @return The cost actually taken, pass it to release(). Capped at the budget, so a file larger
+     *         than the budget still runs, alone
+     * @throws InterruptedException if interrupted while waiting, nothing is taken then
+     */
+    synchronized long acquire(long cost) throws InterruptedException {
+        long taken = Math.min(cost, budget);
+        long ticket = nextTicket++;
+        try {
+            while (ticket != admittedTicket || (used > 0 && used + taken > budget)) {
+                wait();
+            }
+            // First in line and within budget, only the heap may still be short. Nothing is
+            // released when the collector frees memory, so check again now and then
+            while (used > 0 && heapTooLow(taken)) {
+                wait(PRESSURE_RECHECK_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            if (ticket == admittedTicket) {
+                advance();
+            } else {
+                abandonedTickets.add(ticket);
+            }
+            notifyAll();
+            throw e;
+        }
+        advance();
+        used += taken;
+        notifyAll(); // The next file in line may fit as well
+        return taken;
+    }
+
+    /**
+     * Give back what acquire() took
+     */
+    synchronized void release(long taken) {
+        used -= taken;
+        notifyAll();
+    }
+
+    /**
+     * Give the whole budget to one conversion, waiting until nothing else runs
+     * @return The cost taken, pass it to release()
+     */
+    long acquireAll() throws InterruptedException {
+        return acquire(budget);
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    private void advance() {
+        admittedTicket++;
+        while (abandonedTickets.remove(admittedTicket)) {
+            admittedTicket++;
+        }
+    }
+
+    private boolean heapTooLow(long cost) {
+        long free = Runtime.getRuntime().maxMemory() - liveHeapBytes();
+        if (free >= cost) {
+            return false;
+        }
+        if (!pressureReported) {
+            System.err.println("Heap is low (" + free / (1024 * 1024) + " MB free), waiting for running"
+                    + " conversions before starting more");
+            pressureReported = true;
+        }
+        return true;
+    }
+
+    /**
+     * Heap still in use after the most recent garbage collection of each pool, falling back to the
+     * current usage when the JVM does not report it
+     */
+    private static long liveHeapBytes() {
+        long live = 0;
+        boolean reported = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (afterGc != null) {
+                live += afterGc.getUsed();
+                reported = true;
+            }
+        }
+        if (!reported) {
+            Runtime runtime = Runtime.getRuntime();
+            live = runtime.totalMemory() - runtime.freeMemory();
+        }
+        return live;
+    }
+}
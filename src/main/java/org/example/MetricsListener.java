@@ -0,0 +1,31 @@
+package org.example;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Receives the measurements of a ConversionEngine batch
+ */
+public interface MetricsListener {
+
+    /**
+     * Called once for every file that was converted or failed, skipped files are not measured.
+     * Called from worker threads.
+     */
+    void fileMeasured(ConversionMetrics metrics);
+
+    /**
+     * Called on the calling thread after every file of a batch is done, before batchFinished
+     * @param maxDepths Most files that waited at the same time in front of each pipeline stage
+     * @param capacity Files that may wait in front of a stage
+     */
+    default void queuesMeasured(Map<ConversionEngine.PipelineStage, Integer> maxDepths, int capacity) {
+    }
+
+    /**
+     * Called on the calling thread after every file of a batch is done
+     * @param outputDir Output folder of the batch
+     */
+    default void batchFinished(Path outputDir) {
+    }
+}
@@ -0,0 +1,201 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects the metrics of a batch and, when it finishes, prints a table with one line per file
+ * and optionally writes the same data as JSON next to the outputs.
+ */
+public class MetricsReport implements MetricsListener {
+
+    public static final String JSON_FILE_NAME = "conversion-metrics.json";
+
+    private static final ConversionMetrics.Stage[] STAGES = ConversionMetrics.Stage.values();
+    private static final int NAME_WIDTH = 32;
+
+    private final PrintStream out;
+    private final boolean writeJson;
+    private final List<ConversionMetrics> files = new ArrayList<>();
+    private Map<ConversionEngine.PipelineStage, Integer> queueDepths = Map.of(); // Of the batch being finished
+    private int queueCapacity;
+
+    /**
+     * Create a report
+     * @param out Where the table is printed
+     * @param writeJson Also write JSON_FILE_NAME into the output folder of every batch
+     */
+    public MetricsReport(PrintStream out, boolean writeJson) {
+        this.out = out;
+        this.writeJson = writeJson;
+    }
+
+    @Override
+    public synchronized void fileMeasured(ConversionMetrics metrics) {
+        files.add(metrics);
+    }
+
+    @Override
+    public synchronized void queuesMeasured(Map<ConversionEngine.PipelineStage, Integer> maxDepths, int capacity) {
+        queueDepths = maxDepths;
+        queueCapacity = capacity;
+    }
+
+    @Override
+    public void batchFinished(Path outputDir) {
+        List<ConversionMetrics> batch;
+        Map<ConversionEngine.PipelineStage, Integer> depths;
+        int capacity;
+        synchronized (this) {
+            batch = new ArrayList<>(files);
+            files.clear();
+            depths = queueDepths;
+            capacity = queueCapacity;
+            queueDepths = Map.of();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.sort(Comparator.comparing(ConversionMetrics::getInputFile));
+
+        printTable(batch);
+        printQueues(depths, capacity);
+        if (writeJson) {
+            Path jsonFile = outputDir.resolve(JSON_FILE_NAME);
+            try {
+                Files.writeString(jsonFile, toJson(batch, depths, capacity) + System.lineSeparator(),
+                        StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.err.println("Unable to write metrics to " + jsonFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void printTable(List<ConversionMetrics> batch) {
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-" + NAME_WIDTH + "s %7s %9s %9s",
+                "File", "Rows", "In KB", "Out KB"));
+        for (ConversionMetrics.Stage stage : STAGES) {
+            header.append(String.format(Locale.ROOT, " %8s", stage.getLabel() + " ms"));
+        }
+        header.append(String.format(Locale.ROOT, " %9s %9s %9s", "Total ms", "Alloc MB", "Heap MB"));
+        out.println(header);
+
+        long[] stageTotals = new long[STAGES.length];
+        long rows = 0;
+        long bytesIn = 0;
+        long bytesOut = 0;
+        long allocated = 0;
+        long peakHeap = 0;
+
+        for (ConversionMetrics metrics : batch) {
+            String name = metrics.getInputFile().getFileName().toString();
+            if (!metrics.isSuccess()) {
+                name = "(failed) " + name;
+            }
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-" + NAME_WIDTH + "s %7d %9d %9d",
+                    abbreviate(name), metrics.getRowCount(), metrics.getBytesIn() / 1024, metrics.getBytesOut() / 1024));
+            for (int i = 0; i < STAGES.length; i++) {
+                long nanos = metrics.getStageNanos(STAGES[i]);
+                stageTotals[i] += nanos;
+                line.append(String.format(Locale.ROOT, " %8.1f", nanos / 1e6));
+            }
+            line.append(String.format(Locale.ROOT, " %9.1f %9.1f %9.1f", metrics.getTotalNanos() / 1e6,
+                    metrics.getTotalAllocatedBytes() / 1048576.0, metrics.getPeakHeapBytes() / 1048576.0));
+            out.println(line);
+
+            rows += metrics.getRowCount();
+            bytesIn += metrics.getBytesIn();
+            bytesOut += metrics.getBytesOut();
+            allocated += metrics.getTotalAllocatedBytes();
+            peakHeap = Math.max(peakHeap, metrics.getPeakHeapBytes());
+        }
+
+        StringBuilder total = new StringBuilder(String.format(Locale.ROOT, "%-" + NAME_WIDTH + "s %7d %9d %9d",
+                "Total (" + batch.size() + " files)", rows, bytesIn / 1024, bytesOut / 1024));
+        long totalNanos = 0;
+        for (long nanos : stageTotals) {
+            total.append(String.format(Locale.ROOT, " %8.1f", nanos / 1e6));
+            totalNanos += nanos;
+        }
+        total.append(String.format(Locale.ROOT, " %9.1f %9.1f %9.1f", totalNanos / 1e6,
+                allocated / 1048576.0, peakHeap / 1048576.0));
+        out.println(total);
+    }
+
+    /**
+     * One line with the deepest queue in front of every stage, a full queue means the stage is the bottleneck
+     */
+    private void printQueues(Map<ConversionEngine.PipelineStage, Integer> depths, int capacity) {
+        if (depths.isEmpty()) {
+            return;
+        }
+        StringBuilder line = new StringBuilder("Queue depth (max/capacity):");
+        depths.forEach((stage, depth) -> line.append(' ').append(stage.name().toLowerCase(Locale.ROOT))
+                .append(' ').append(depth).append('/').append(capacity));
+        out.println(line);
+    }
+
+    private static String abbreviate(String name) {
+        return name.length() <= NAME_WIDTH ? name : name.substring(0, NAME_WIDTH - 3) + "...";
+    }
+
+    /**
+     * JSON form of the batch, times in milliseconds and sizes in bytes
+     */
+    static String toJson(List<ConversionMetrics> batch, Map<ConversionEngine.PipelineStage, Integer> queueDepths,
+                         int queueCapacity) {
+        StringBuilder json = new StringBuilder("{\"files\":[");
+        for (int f = 0; f < batch.size(); f++) {
+            ConversionMetrics metrics = batch.get(f);
+            if (f > 0) {
+                json.append(',');
+            }
+            json.append("{\"input\":").append(Json.quote(metrics.getInputFile().toString()))
+                    .append(",\"output\":").append(Json.quote(metrics.getOutputFile().toString()))
+                    .append(",\"success\":").append(metrics.isSuccess())
+                    .append(",\"rows\":").append(metrics.getRowCount())
+                    .append(",\"bytesIn\":").append(metrics.getBytesIn())
+                    .append(",\"bytesOut\":").append(metrics.getBytesOut())
+                    .append(",\"totalMillis\":").append(millis(metrics.getTotalNanos()))
+                    .append(",\"allocatedBytes\":").append(metrics.getTotalAllocatedBytes())
+                    .append(",\"peakHeapBytes\":").append(metrics.getPeakHeapBytes())
+                    .append(",\"stages\":{");
+            for (int i = 0; i < STAGES.length; i++) {
+                ConversionMetrics.Stage stage = STAGES[i];
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(Json.quote(stage.name().toLowerCase(Locale.ROOT)))
+                        .append(":{\"millis\":").append(millis(metrics.getStageNanos(stage)))
+                        .append(",\"allocatedBytes\":").append(metrics.getStageAllocatedBytes(stage))
+                        .append(",\"heapBytes\":").append(metrics.getStageHeapBytes(stage))
+                        .append('}');
+            }
+            json.append("}}");
+        }
+        json.append("],\"queues\":{");
+        boolean first = true;
+        for (Map.Entry<ConversionEngine.PipelineStage, Integer> queue : queueDepths.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(Json.quote(queue.getKey().name().toLowerCase(Locale.ROOT)))
+                    .append(":{\"maxDepth\":").append(queue.getValue())
+                    .append(",\"capacity\":").append(queueCapacity).append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
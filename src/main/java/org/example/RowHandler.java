@@ -0,0 +1,17 @@
+package org.example;
+
+/**
+ * Receives data rows from the streaming readers, one call per row.
+ */
+interface RowHandler {
+
+    /**
+     * Handle one data row. Plain numeric cells are passed as numbers so they are
+     * not formatted to text and parsed back later.
+     * @param values Cell values of the projected columns, in projection order,
+     *               null where the cell is numeric
+     * @param numbers The numeric value where values is null.
+     *                Both arrays are reused for the next row, copy what you keep.
+     */
+    void row(String[] values, double[] numbers);
+}
@@ -0,0 +1,191 @@
+package org.example;
+
+import java.util.Locale;
+
+/**
+ * Count, mean, median, min, max and below-threshold count of a stream of scores, in one pass and
+ * constant memory. The median comes from a histogram of the 0-100 range in steps of 0.1, so it is exact
+ * for scores with at most one decimal and off by at most 0.05 otherwise. Scores outside the range are
+ * counted in the first or last step for the median, min and max stay exact.
+ * Statistics of several files or classes are combined with merge.
+ */
+public class ScoreStatistics {
+
+    private static final int STEPS_PER_POINT = 10;
+    private static final int BINS = 100 * STEPS_PER_POINT + 1;
+
+    private final double threshold;
+    private final int[] histogram = new int[BINS];
+    private long count;
+    private long missing; // Rows without a numeric score
+    private long below;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Create empty statistics
+     * @param threshold Scores below this are counted by getBelowThreshold
+     */
+    public ScoreStatistics(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Add a numeric score
+     */
+    public void add(double score) {
+        count++;
+        sum += score;
+        min = Math.min(min, score);
+        max = Math.max(max, score);
+        if (score < threshold) {
+            below++;
+        }
+        histogram[bin(score)]++;
+    }
+
+    /**
+     * Count a row whose score cell is empty or text
+     */
+    public void addMissing() {
+        missing++;
+    }
+
+    /**
+     * Add every score of other statistics, which must use the same threshold
+     */
+    public void merge(ScoreStatistics other) {
+        count += other.count;
+        missing += other.missing;
+        below += other.below;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < BINS; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    private static int bin(double score) {
+        long step = Math.round(score * STEPS_PER_POINT);
+        return (int) Math.max(0, Math.min(BINS - 1, step));
+    }
+
+    /**
+     * Number of numeric scores
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Number of rows without a numeric score
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    public long getBelowThreshold() {
+        return below;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Mean score, NaN without scores
+     */
+    public double getMean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    /**
+     * Median score from the histogram, NaN without scores
+     */
+    public double getMedian() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        // The middle score, or the two middle scores of an even count
+        int lower = binAtRank((count - 1) / 2);
+        int upper = count % 2 == 1 ? lower : binAtRank(count / 2);
+        return (lower + upper) / (2.0 * STEPS_PER_POINT);
+    }
+
+    private int binAtRank(long rank) {
+        long seen = 0;
+        for (int i = 0; i < BINS; i++) {
+            seen += histogram[i];
+            if (seen > rank) {
+                return i;
+            }
+        }
+        return BINS - 1;
+    }
+
+    /**
+     * Lowest score, NaN without scores
+     */
+    public double getMin() {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    /**
+     * Highest score, NaN without scores
+     */
+    public double getMax() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * Compact text form for ScoreSummary's cache: the totals, then "bin:count" for every used bin
+     */
+    String encode() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(count).append(',').append(missing).append(',').append(below).append(',').append(sum)
+                .append(',').append(min).append(',').append(max);
+        for (int i = 0; i < BINS; i++) {
+            if (histogram[i] > 0) {
+                sb.append(' ').append(i).append(':').append(histogram[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Statistics from the text of encode()
+     * @throws IllegalArgumentException if the text is malformed
+     */
+    static ScoreStatistics decode(String text, double threshold) {
+        ScoreStatistics statistics = new ScoreStatistics(threshold);
+        String[] parts = text.trim().split(" ");
+        String[] totals = parts[0].split(",");
+        if (totals.length != 6) {
+            throw new IllegalArgumentException("Malformed statistics: " + text);
+        }
+        try {
+            statistics.count = Long.parseLong(totals[0]);
+            statistics.missing = Long.parseLong(totals[1]);
+            statistics.below = Long.parseLong(totals[2]);
+            statistics.sum = Double.parseDouble(totals[3]);
+            statistics.min = Double.parseDouble(totals[4]);
+            statistics.max = Double.parseDouble(totals[5]);
+            for (int i = 1; i < parts.length; i++) {
+                int colon = parts[i].indexOf(':');
+                statistics.histogram[Integer.parseInt(parts[i].substring(0, colon))] =
+                        Integer.parseInt(parts[i].substring(colon + 1));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed statistics: " + text, e);
+        }
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "n=%d mean=%.2f median=%.1f min=%s max=%s below=%d missing=%d",
+                count, getMean(), getMedian(), getMin(), getMax(), below, missing);
+    }
+}
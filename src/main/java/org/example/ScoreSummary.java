@@ -0,0 +1,269 @@
+package org.example;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Score statistics of every file converted into an output folder, per file and per department,
+ * written as one workbook so nobody has to open each output to count students below the threshold.
+ * The statistics are taken from the tables the export stage writes, inputs are never read again.
+ * They are kept in a tab separated cache next to the outputs, so files skipped by an incremental
+ * run still count.
+ */
+public class ScoreSummary {
+
+    public static final String FILE_NAME = "score-summary.xlsx";
+    public static final String CACHE_FILE_NAME = ".score-summary.tsv";
+    private static final String HEADER = "# score summary v1 threshold=";
+    // Department field of the line with a file's totals, escaped departments never are a lone backslash
+    private static final String FILE_TOTAL = "\\";
+    private static final String NO_DEPARTMENT = "(none)";
+
+    private static final int NAME_COLUMN_WIDTH = 40 * 256;
+    private static final int VALUE_COLUMN_WIDTH = 12 * 256;
+
+    private final Path outputDir;
+    private final double threshold;
+    private final Map<String, FileScores> files = new TreeMap<>(); // By absolute input path
+
+    /**
+     * Create an empty summary
+     * @param threshold Scores below this are counted as below the threshold
+     */
+    ScoreSummary(Path outputDir, double threshold) {
+        this.outputDir = outputDir;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Load the cached statistics of an output folder, an empty summary when there are none
+     * or they were counted against another threshold
+     */
+    static ScoreSummary load(Path outputDir, double threshold) throws IOException {
+        ScoreSummary summary = new ScoreSummary(outputDir, threshold);
+        Path cache = outputDir.resolve(CACHE_FILE_NAME);
+        if (!Files.exists(cache)) {
+            return summary;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(cache, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null || !line.equals(HEADER + threshold)) {
+                return summary;
+            }
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 3) {
+                    System.err.println("Ignoring malformed score summary line in " + cache);
+                    continue;
+                }
+                try {
+                    ScoreStatistics statistics = ScoreStatistics.decode(fields[2], threshold);
+                    FileScores scores = summary.files.computeIfAbsent(ConversionManifest.unescape(fields[0]),
+                            file -> new FileScores(threshold));
+                    if (fields[1].equals(FILE_TOTAL)) {
+                        scores.total.merge(statistics);
+                    } else {
+                        scores.departments.put(ConversionManifest.unescape(fields[1]), statistics);
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Ignoring malformed score summary line in " + cache);
+                }
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Take the statistics of a batch: converted files replace their entry, failed files lose it,
+     * skipped files keep the one cached. Files that no longer exist are dropped.
+     */
+    void update(List<ConversionResult> results) {
+        for (ConversionResult result : results) {
+            String key = ConversionManifest.key(result.getInputFile());
+            if (!result.isSuccess()) {
+                files.remove(key);
+            } else if (result.getScores() != null) {
+                files.put(key, result.getScores());
+            } else if (result.isSkipped() && !files.containsKey(key)) {
+                System.err.println("No score statistics for " + result.getInputFile()
+                        + ", convert it again without --incremental to include it in the summary");
+            }
+        }
+        files.keySet().removeIf(file -> !Files.exists(Path.of(file)));
+    }
+
+    /**
+     * Write the cache, replacing the previous file in one move
+     */
+    void save() throws IOException {
+        Path cache = outputDir.resolve(CACHE_FILE_NAME);
+        Path temp = cache.resolveSibling(CACHE_FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + threshold);
+            writer.newLine();
+            for (Map.Entry<String, FileScores> file : files.entrySet()) {
+                String key = ConversionManifest.escape(file.getKey());
+                writer.write(key + "\t" + FILE_TOTAL + "\t" + file.getValue().total.encode());
+                writer.newLine();
+                for (Map.Entry<String, ScoreStatistics> department : file.getValue().departments.entrySet()) {
+                    writer.write(key + "\t" + ConversionManifest.escape(department.getKey()) + "\t"
+                            + department.getValue().encode());
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write FILE_NAME into the output folder: a sheet with one row per file and a sheet with one row
+     * per department of all files, each ending with the totals
+     * @param inputDir Folder the files were found in, file names are shown relative to it. May be null
+     */
+    void write(Path inputDir) throws IOException {
+        Path root = inputDir != null ? inputDir.toAbsolutePath().normalize() : null;
+        ScoreStatistics total = new ScoreStatistics(threshold);
+        Map<String, ScoreStatistics> byFile = new TreeMap<>();
+        Map<String, ScoreStatistics> byDepartment = new TreeMap<>();
+        for (Map.Entry<String, FileScores> file : files.entrySet()) {
+            Path path = Path.of(file.getKey());
+            String name = root != null && path.startsWith(root) ? root.relativize(path).toString()
+                    : path.getFileName().toString();
+            byFile.put(name, file.getValue().total);
+            total.merge(file.getValue().total);
+            file.getValue().departments.forEach((department, statistics) ->
+                    byDepartment.computeIfAbsent(department.isEmpty() ? NO_DEPARTMENT : department,
+                                    key -> new ScoreStatistics(threshold))
+                            .merge(statistics));
+        }
+
+        try (Workbook workbook = new XSSFWorkbook();
+             OutputStream out = Files.newOutputStream(outputDir.resolve(FILE_NAME))) {
+            Styles styles = new Styles(workbook);
+            writeSheet(workbook.createSheet("Files"), "File", byFile, "All files", total, styles);
+            writeSheet(workbook.createSheet("Departments"), "Department", byDepartment, "All departments", total,
+                    styles);
+            workbook.write(out);
+        }
+    }
+
+    private void writeSheet(Sheet sheet, String nameHeader, Map<String, ScoreStatistics> rows, String totalName,
+                            ScoreStatistics total, Styles styles) {
+        List<String> headers = List.of(nameHeader, "Students", "Mean", "Median", "Min", "Max",
+                "Below " + SimpleExcelReader.formatNumber(threshold), "No score");
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.size(); i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers.get(i));
+            cell.setCellStyle(styles.header);
+            sheet.setColumnWidth(i, i == 0 ? NAME_COLUMN_WIDTH : VALUE_COLUMN_WIDTH);
+        }
+
+        int rowNum = 1;
+        for (Map.Entry<String, ScoreStatistics> entry : rows.entrySet()) {
+            writeRow(sheet.createRow(rowNum++), entry.getKey(), entry.getValue(), styles);
+        }
+        writeRow(sheet.createRow(rowNum), totalName, total, styles);
+        sheet.createFreezePane(0, 1);
+    }
+
+    private static void writeRow(Row row, String name, ScoreStatistics statistics, Styles styles) {
+        row.createCell(0).setCellValue(name);
+        row.createCell(1).setCellValue(statistics.getCount());
+        if (statistics.getCount() > 0) {
+            Cell mean = row.createCell(2);
+            mean.setCellValue(statistics.getMean());
+            mean.setCellStyle(styles.decimal);
+            row.createCell(3).setCellValue(statistics.getMedian());
+            row.createCell(4).setCellValue(statistics.getMin());
+            row.createCell(5).setCellValue(statistics.getMax());
+        }
+        row.createCell(6).setCellValue(statistics.getBelowThreshold());
+        row.createCell(7).setCellValue(statistics.getMissing());
+    }
+
+    /**
+     * Statistics of one input file, in total and per department, across all its converted sheets
+     */
+    static final class FileScores {
+        private final ScoreStatistics total;
+        private final Map<String, ScoreStatistics> departments = new TreeMap<>();
+
+        private FileScores(double threshold) {
+            this.total = new ScoreStatistics(threshold);
+        }
+
+        /**
+         * Count the rows of the tables of a file, one pass over the typed score column
+         */
+        static FileScores of(Collection<GradeTable> tables, double threshold) {
+            FileScores scores = new FileScores(threshold);
+            for (GradeTable table : tables) {
+                // Departments are dictionary encoded, count by code and name them afterwards
+                List<String> names = table.getDepartments();
+                ScoreStatistics[] byCode = new ScoreStatistics[names.size()];
+                for (int row = 0; row < table.size(); row++) {
+                    int code = table.getDepartmentCode(row);
+                    if (byCode[code] == null) {
+                        byCode[code] = new ScoreStatistics(threshold);
+                    }
+                    if (table.hasNumericScore(row)) {
+                        byCode[code].add(table.getScore(row));
+                    } else {
+                        byCode[code].addMissing();
+                    }
+                }
+
+                for (int code = 0; code < byCode.length; code++) {
+                    if (byCode[code] != null) {
+                        scores.total.merge(byCode[code]);
+                        scores.departments.computeIfAbsent(names.get(code), name -> new ScoreStatistics(threshold))
+                                .merge(byCode[code]);
+                    }
+                }
+            }
+            return scores;
+        }
+    }
+
+    /**
+     * Cell styles of the summary workbook
+     */
+    private static final class Styles {
+        private final CellStyle header;
+        private final CellStyle decimal;
+
+        Styles(Workbook workbook) {
+            header = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            header.setFont(font);
+            header.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            header.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            decimal = workbook.createCellStyle();
+            decimal.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+        }
+    }
+}
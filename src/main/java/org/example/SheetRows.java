@@ -0,0 +1,29 @@
+package org.example;
+
+/**
+ * Column projection and row handler of one sheet of a multi-sheet read.
+ */
+interface SheetRows extends ColumnProjection, RowHandler {
+
+    /**
+     * Combine a projection and a handler
+     */
+    static SheetRows of(ColumnProjection projection, RowHandler handler) {
+        return new SheetRows() {
+            @Override
+            public boolean needsHeader() {
+                return projection.needsHeader();
+            }
+
+            @Override
+            public int[] resolve(String[] header) {
+                return projection.resolve(header);
+            }
+
+            @Override
+            public void row(String[] values, double[] numbers) {
+                handler.row(values, numbers);
+            }
+        };
+    }
+}
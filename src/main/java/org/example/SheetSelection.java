@@ -0,0 +1,133 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Which sheets of a workbook are converted. Parsed from text like:
+ * <pre>
+ * first                 only the first sheet (the default)
+ * all                   every sheet
+ * 2,3                   the second and third sheet (positions start at 1)
+ * Kelas A, Kelas B      sheets by name, case insensitive
+ * Kelas *               sheets whose name matches a pattern, * and ? are wildcards
+ * </pre>
+ */
+public final class SheetSelection {
+
+    public static final SheetSelection FIRST = new SheetSelection("first", List.of());
+    public static final SheetSelection ALL = new SheetSelection("all", List.of());
+
+    private final String text;
+    private final List<Pattern> patterns; // Name patterns, empty for FIRST and ALL
+    private final List<Integer> positions; // Zero-based positions, parallel to patterns, -1 when not a number
+
+    private SheetSelection(String text, List<String> entries) {
+        this.text = text;
+        List<Pattern> patterns = new ArrayList<>(entries.size());
+        List<Integer> positions = new ArrayList<>(entries.size());
+        for (String entry : entries) {
+            patterns.add(wildcardPattern(entry));
+            positions.add(position(entry));
+        }
+        this.patterns = Collections.unmodifiableList(patterns);
+        this.positions = Collections.unmodifiableList(positions);
+    }
+
+    /**
+     * Parse a selection, see the class comment for the syntax
+     * @throws IllegalArgumentException if the text selects nothing
+     */
+    public static SheetSelection parse(String text) {
+        String trimmed = text.trim();
+        if (trimmed.equalsIgnoreCase("first")) {
+            return FIRST;
+        }
+        if (trimmed.equalsIgnoreCase("all") || trimmed.equals("*")) {
+            return ALL;
+        }
+
+        List<String> entries = new ArrayList<>();
+        for (String entry : trimmed.split(",")) {
+            entry = entry.trim();
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("No sheets selected, use first, all, positions or names");
+        }
+        return new SheetSelection(String.join(",", entries), entries);
+    }
+
+    /**
+     * Whether only the first sheet is read, the original behaviour
+     */
+    public boolean isFirstOnly() {
+        return this == FIRST;
+    }
+
+    /**
+     * Whether the sheet at a zero-based position with the given name is selected
+     */
+    public boolean matches(int index, String name) {
+        if (this == FIRST) {
+            return index == 0;
+        }
+        if (this == ALL) {
+            return true;
+        }
+        for (int i = 0; i < patterns.size(); i++) {
+            if (positions.get(i) == index || (name != null && patterns.get(i).matcher(name).matches())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Pattern wildcardPattern(String entry) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < entry.length(); i++) {
+            char c = entry.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(entry.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < entry.length()) {
+            regex.append(Pattern.quote(entry.substring(start)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    /**
+     * Zero-based position of an entry like "2", -1 when it is not a position
+     */
+    private static int position(String entry) {
+        for (int i = 0; i < entry.length(); i++) {
+            if (!Character.isDigit(entry.charAt(i))) {
+                return -1;
+            }
+        }
+        try {
+            return Integer.parseInt(entry) - 1;
+        } catch (NumberFormatException e) {
+            return -1; // Too large to be a position
+        }
+    }
+
+    /**
+     * Canonical text of the selection, parse(toString()) selects the same sheets
+     */
+    @Override
+    public String toString() {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
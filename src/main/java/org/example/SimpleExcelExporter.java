@@ -1,19 +1,41 @@
 package org.example;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.zip.Deflater;
 
 public class SimpleExcelExporter {
 
-    // Define column indices for sorting
-    private static final int DEPARTMENT_COLUMN_INDEX = 3; // Column 4 in your data
-    private static final int FULL_NAME_COLUMN_INDEX = 2;  // Column 3 in your data (Full Name)
     private static final int LAST_COLUMN_INDEX = 4;       // Column 5 in your data (Score)
-    private static final double MIN_THRESHOLD = 78.0;     // Threshold for highlighting
+    public static final double MIN_THRESHOLD = 78.0;      // Default threshold for highlighting
+    private static final int COLUMN_COUNT = GradeTable.COLUMN_COUNT;
+
+    // Default headers for your 5-column structure
+    private static final List<String> DEFAULT_HEADERS = List.of("ID", "First Name", "Full Name", "Department", "Score");
+
+    // Rows kept in memory by the streaming workbook, older rows are flushed to disk
+    public static final int DEFAULT_ROW_ACCESS_WINDOW = 100;
+    private static final int MAX_COLUMN_WIDTH = 255 * 256; // Excel limit, in 1/256 of a character
+
+    // Deflate level of the direct writer, the XML compresses well even at the fastest level
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    private boolean streaming = true; // Write .xlsx files through SXSSF
+    private int rowAccessWindow = DEFAULT_ROW_ACCESS_WINDOW;
+    private HighlightRules highlightRules = HighlightRules.below(MIN_THRESHOLD); // Score bands of highlighted rows
+    private boolean autoSizeColumns = true; // Measure cells with AWT fonts when the workbook is in memory
+    private boolean sortRows = true; // Sort by department and full name before writing
+    private boolean directWriter; // Write .xlsx parts directly instead of through POI
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL; // Deflate level of the direct writer
+    private ConversionMetrics metrics; // Stage timings of the file being written, may be null
 
     /**
      * Export data to Excel file with sorting and conditional formatting
@@ -33,115 +55,361 @@ public class SimpleExcelExporter {
      * @throws IOException if file cannot be created
      */
     public void exportToExcel(String filePath, List<List<String>> data, List<String> headers) throws IOException {
-        Workbook workbook;
+        export(filePath, GradeTable.fromRows(data), null, headers, highlightRules);
+    }
 
-        // Create appropriate workbook based on file extension
-        if (filePath.endsWith(".xlsx")) {
-            workbook = new XSSFWorkbook();
-        } else if (filePath.endsWith(".xls")) {
-            workbook = new HSSFWorkbook();
-        } else {
-            throw new IllegalArgumentException("File must have .xls or .xlsx extension");
+    /**
+     * Export a typed table to Excel file with sorting and conditional formatting
+     * @param filePath Path to save the Excel file
+     * @param table Rows from SimpleExcelReader.readTable
+     * @param headers Custom headers for the columns (null for no headers)
+     * @throws IOException if file cannot be created
+     */
+    public void exportToExcel(String filePath, GradeTable table, List<String> headers) throws IOException {
+        export(filePath, table, null, headers, highlightRules);
+    }
+
+    /**
+     * Row order of a table as exportToExcel would write it, so sorting can run apart from writing
+     */
+    int[] sortOrder(GradeTable table) {
+        startStage(ConversionMetrics.Stage.SORT);
+        return sortRows ? GradeSorter.sort(table) : inputOrder(table);
+    }
+
+    /**
+     * Like exportToExcel, with rows written in an order from sortOrder
+     */
+    void exportSorted(String filePath, GradeTable table, int[] order, List<String> headers) throws IOException {
+        export(filePath, table, order, headers, highlightRules);
+    }
+
+    /**
+     * Like exportSheets, with rows written in orders from sortOrder
+     * @param orders Row order per sheet name
+     */
+    void exportSheetsSorted(String filePath, Map<String, GradeTable> tables, Map<String, int[]> orders,
+                            List<String> headers) throws IOException {
+        exportSheets(filePath, tables, orders, headers);
+    }
+
+    /**
+     * Export several typed tables into one file, one sheet per table, each sorted and highlighted
+     * like exportToExcel does
+     * @param filePath Path to save the Excel file
+     * @param tables Table per sheet name, sheets are written in iteration order
+     * @param headers Custom headers for the columns (null for no headers)
+     * @throws IOException if file cannot be created
+     */
+    public void exportSheets(String filePath, Map<String, GradeTable> tables, List<String> headers)
+            throws IOException {
+        exportSheets(filePath, tables, null, headers);
+    }
+
+    private void exportSheets(String filePath, Map<String, GradeTable> tables, Map<String, int[]> orders,
+                              List<String> headers) throws IOException {
+        if (isCsv(filePath)) {
+            if (tables.size() != 1) {
+                throw new IllegalArgumentException("A CSV file holds a single sheet, write one file per sheet");
+            }
+            Map.Entry<String, GradeTable> table = tables.entrySet().iterator().next();
+            exportCsv(filePath, table.getValue(), orders != null ? orders.get(table.getKey()) : null, headers);
+            return;
+        }
+        if (isDirect(filePath)) {
+            exportDirect(filePath, tables, orders, headers, highlightRules);
+            return;
+        }
+        Workbook workbook = createWorkbook(filePath);
+
+        try (FileOutputStream outputStream = new FileOutputStream(filePath)) {
+            Styles styles = new Styles(workbook);
+            Set<String> usedNames = new HashSet<>();
+            for (Map.Entry<String, GradeTable> entry : tables.entrySet()) {
+                String name = uniqueSheetName(entry.getKey(), usedNames);
+                writeSheet(workbook.createSheet(name), entry.getValue(),
+                        orders != null ? orders.get(entry.getKey()) : null, headers, highlightRules, styles);
+            }
+
+            startStage(ConversionMetrics.Stage.SAVE);
+            workbook.write(outputStream);
+        } finally {
+            closeWorkbook(workbook);
         }
+    }
+
+    private void export(String filePath, GradeTable table, int[] order, List<String> headers,
+                        HighlightRules rules) throws IOException {
+        if (isCsv(filePath)) {
+            exportCsv(filePath, table, order, headers);
+            return;
+        }
+        if (isDirect(filePath)) {
+            exportDirect(filePath, Map.of("Data", table), order != null ? Map.of("Data", order) : null, headers,
+                    rules);
+            return;
+        }
+        Workbook workbook = createWorkbook(filePath);
 
         try (FileOutputStream outputStream = new FileOutputStream(filePath)) {
             // Create a sheet
             Sheet sheet = workbook.createSheet("Data");
+            writeSheet(sheet, table, order, headers, rules, new Styles(workbook));
+
+            startStage(ConversionMetrics.Stage.SAVE);
+            workbook.write(outputStream);
 
-            // Create styles
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle normalStyle = createNormalStyle(workbook);
-            CellStyle redRowStyle = createRedRowStyle(workbook);
+        } finally {
+            closeWorkbook(workbook);
+        }
+    }
 
-            int rowNum = 0;
+    private boolean isDirect(String filePath) {
+        return directWriter && filePath.endsWith(".xlsx");
+    }
 
-            // Add headers if provided
-            if (headers != null && !headers.isEmpty()) {
-                Row headerRow = sheet.createRow(rowNum++);
-                for (int i = 0; i < Math.min(5, headers.size()); i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(headers.get(i));
-                    cell.setCellStyle(headerStyle);
-                }
+    private static boolean isCsv(String filePath) {
+        return filePath.endsWith(CsvReader.EXTENSION);
+    }
+
+    /**
+     * Write a table as CSV with CsvWriter, sorted like a sheet. CSV has no styles, highlighting
+     * and column widths do not apply.
+     */
+    private void exportCsv(String filePath, GradeTable table, int[] order, List<String> headers)
+            throws IOException {
+        if (order == null) {
+            order = sortOrder(table);
+        }
+        try (CsvWriter writer = new CsvWriter(Paths.get(filePath))) {
+            startStage(ConversionMetrics.Stage.WRITE_ROWS);
+            writer.writeTable(table, order, headers);
+            startStage(ConversionMetrics.Stage.SAVE);
+        } finally {
+            if (metrics != null) {
+                metrics.endStage();
             }
+        }
+    }
 
-            // Sort data by Department (column 3) then Full Name (column 2)
-            List<List<String>> sortedData = sortData(data);
+    /**
+     * Write tables with DirectXlsxWriter, one sheet each. Widths come from the value lengths
+     * like in the streaming POI path, they have to be known before the rows are streamed.
+     */
+    private void exportDirect(String filePath, Map<String, GradeTable> tables, Map<String, int[]> orders,
+                              List<String> headers, HighlightRules rules) throws IOException {
+        try (DirectXlsxWriter writer = new DirectXlsxWriter(new FileOutputStream(filePath), compressionLevel,
+                rules)) {
+            Set<String> usedNames = new HashSet<>();
+            for (Map.Entry<String, GradeTable> entry : tables.entrySet()) {
+                GradeTable table = entry.getValue();
+                int[] order = orders != null ? orders.get(entry.getKey()) : sortOrder(table);
+
+                startStage(ConversionMetrics.Stage.SIZE_COLUMNS);
+                int[] widths = columnWidths(table, headers);
+
+                startStage(ConversionMetrics.Stage.WRITE_ROWS);
+                writer.writeSheet(uniqueSheetName(entry.getKey(), usedNames), table, order, headers, widths);
+            }
 
-            // Add data rows
-            for (List<String> rowData : sortedData) {
-                Row row = sheet.createRow(rowNum++);
+            startStage(ConversionMetrics.Stage.SAVE);
+            writer.finish();
+        } finally {
+            if (metrics != null) {
+                metrics.endStage();
+            }
+        }
+    }
 
-                // Check if this row should be highlighted (last column < threshold)
-                boolean shouldHighlight = shouldHighlightRow(rowData);
+    /**
+     * Column widths from the longest value of each column, the same widths writeSheet tracks while writing
+     */
+    private static int[] columnWidths(GradeTable table, List<String> headers) {
+        int[] maxChars = new int[COLUMN_COUNT];
+        if (headers != null) {
+            for (int i = 0; i < Math.min(COLUMN_COUNT, headers.size()); i++) {
+                maxChars[i] = displayLength(headers.get(i)) * 11 / 10;
+            }
+        }
+        for (int row = 0; row < table.size(); row++) {
+            for (int col = 0; col < COLUMN_COUNT; col++) {
+                int length = col == LAST_COLUMN_INDEX && table.hasNumericScore(row)
+                        ? displayLength(table.getScore(row)) : displayLength(table.getText(row, col));
+                maxChars[col] = Math.max(maxChars[col], length);
+            }
+        }
 
-                // Write all columns (should be 5 columns)
-                for (int col = 0; col < Math.min(5, rowData.size()); col++) {
-                    Cell cell = row.createCell(col);
-                    String value = rowData.get(col);
+        int[] widths = new int[COLUMN_COUNT];
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            widths[i] = columnWidth(maxChars[i]);
+        }
+        return widths;
+    }
+
+    private Workbook createWorkbook(String filePath) {
+        // Create appropriate workbook based on file extension
+        if (filePath.endsWith(".xlsx") && streaming) {
+            return new SXSSFWorkbook(rowAccessWindow);
+        } else if (filePath.endsWith(".xlsx")) {
+            return new XSSFWorkbook();
+        } else if (filePath.endsWith(".xls")) {
+            return new HSSFWorkbook();
+        } else {
+            throw new IllegalArgumentException("File must have .xls, .xlsx or .csv extension");
+        }
+    }
+
+    private void closeWorkbook(Workbook workbook) throws IOException {
+        try {
+            workbook.close(); // An SXSSFWorkbook also deletes its temporary sheet files
+        } finally {
+            if (metrics != null) {
+                metrics.endStage();
+            }
+        }
+    }
 
-                    // Set cell value
-                    setCellValue(cell, value);
+    /**
+     * Sort a table and write it with headers, highlighting and column widths into a sheet
+     * @param order Row order from sortOrder, null to sort here
+     */
+    private void writeSheet(Sheet sheet, GradeTable table, int[] order, List<String> headers, HighlightRules rules,
+                            Styles styles) {
+        // Sort data by Department (column 3) then Full Name (column 2)
+        if (order == null) {
+            order = sortOrder(table);
+        }
 
-                    // Apply style - entire row gets red background if below threshold
-                    if (shouldHighlight) {
-                        cell.setCellStyle(redRowStyle);
-                    } else {
-                        cell.setCellStyle(normalStyle);
-                    }
+        startStage(ConversionMetrics.Stage.WRITE_ROWS);
+        int rowNum = 0;
+
+        // Longest value per column, used for column widths when streaming
+        int[] maxChars = new int[COLUMN_COUNT];
+
+        // Add headers if provided
+        if (headers != null && !headers.isEmpty()) {
+            Row headerRow = sheet.createRow(rowNum++);
+            for (int i = 0; i < Math.min(COLUMN_COUNT, headers.size()); i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers.get(i));
+                cell.setCellStyle(styles.header);
+                // Bold header text runs about 10% wider
+                maxChars[i] = displayLength(headers.get(i)) * 11 / 10;
+            }
+        }
+
+        // Add data rows, highlighting is left to the conditional formatting added below
+        int firstDataRow = rowNum;
+        CellStyle style = styles.normal;
+        for (int index : order) {
+            Row row = sheet.createRow(rowNum++);
+
+            // Write all columns (should be 5 columns)
+            for (int col = 0; col < COLUMN_COUNT; col++) {
+                if (col == LAST_COLUMN_INDEX && table.hasNumericScore(index)) {
+                    // Typed score, no detour through text
+                    double score = table.getScore(index);
+                    Cell cell = row.createCell(col);
+                    cell.setCellValue(score);
+                    cell.setCellStyle(style);
+                    maxChars[col] = Math.max(maxChars[col], displayLength(score));
+                    continue;
                 }
+
+                String value = table.getText(index, col);
+                if (value == null) {
+                    continue; // Row had fewer columns
+                }
+
+                // Set cell value
+                Cell cell = row.createCell(col);
+                setCellValue(cell, value);
+                cell.setCellStyle(style);
+                maxChars[col] = Math.max(maxChars[col], displayLength(value));
             }
+        }
+
+        // Entire rows scoring in a band get its colors, Excel re-evaluates them when a score changes
+        rules.apply(sheet, firstDataRow, rowNum - 1, COLUMN_COUNT - 1, LAST_COLUMN_INDEX);
 
+        startStage(ConversionMetrics.Stage.SIZE_COLUMNS);
+        if (sheet instanceof SXSSFSheet || !autoSizeColumns) {
+            // Flushed rows can't be measured, size columns from the tracked lengths
+            for (int i = 0; i < COLUMN_COUNT; i++) {
+                sheet.setColumnWidth(i, columnWidth(maxChars[i]));
+            }
+        } else {
             // Auto-size columns
-            for (int i = 0; i < 5; i++) {
+            for (int i = 0; i < COLUMN_COUNT; i++) {
                 sheet.autoSizeColumn(i);
             }
+        }
+    }
 
-            workbook.write(outputStream);
+    /**
+     * A valid sheet name that is not used yet, Excel compares names case insensitively
+     */
+    private static String uniqueSheetName(String name, Set<String> usedNames) {
+        String safe = WorkbookUtil.createSafeSheetName(name);
+        String unique = safe;
+        for (int n = 2; !usedNames.add(unique.toLowerCase(Locale.ROOT)); n++) {
+            String suffix = " (" + n + ")";
+            unique = safe.substring(0, Math.min(safe.length(), 31 - suffix.length())) + suffix;
+        }
+        return unique;
+    }
 
-        } finally {
-            workbook.close();
+    private void startStage(ConversionMetrics.Stage stage) {
+        if (metrics != null) {
+            metrics.startStage(stage);
         }
     }
 
     /**
-     * Check if a row should be highlighted (last column < threshold)
+     * Number of characters a value shows in the sheet
      */
-    private boolean shouldHighlightRow(List<String> rowData) {
-        if (rowData == null || rowData.size() <= LAST_COLUMN_INDEX) {
-            return false;
-        }
+    private static int displayLength(String value) {
+        return value == null ? 0 : value.length();
+    }
 
-        String lastColumnValue = rowData.get(LAST_COLUMN_INDEX);
-        if (isNumeric(lastColumnValue)) {
-            try {
-                double numericValue = Double.parseDouble(lastColumnValue);
-                return numericValue < MIN_THRESHOLD;
-            } catch (NumberFormatException e) {
-                return false;
-            }
+    /**
+     * Approximate number of characters a number shows in the General format
+     */
+    private static int displayLength(double value) {
+        int length = value < 0 ? 2 : 1;
+        for (double whole = Math.abs(value); whole >= 10 && length < 11; whole /= 10) {
+            length++;
         }
-        return false;
+        // Room for a decimal point and two decimals
+        return value == Math.floor(value) ? length : Math.min(11, length + 3);
     }
 
+    /**
+     * Column width for the given number of characters, with some padding like autoSizeColumn
+     */
+    private static int columnWidth(int chars) {
+        return Math.min((chars + 2) * 256, MAX_COLUMN_WIDTH);
+    }
 
     /**
-     * Set cell value with proper type detection
+     * Set cell value with proper type detection (package-private for the benchmarks)
      */
-    private void setCellValue(Cell cell, String value) {
+    void setCellValue(Cell cell, String value) {
         if (value == null || value.isEmpty()) {
             cell.setCellValue("");
             return;
         }
 
-        if (isNumeric(value)) {
-            try {
-                cell.setCellValue(Double.parseDouble(value));
-            } catch (NumberFormatException e) {
-                cell.setCellValue(value);
-            }
-        } else if (isBoolean(value)) {
-            cell.setCellValue(Boolean.parseBoolean(value));
+        // Detect and parse in one pass, most values are names or plain numbers
+        double number = ValueClassifier.parseNumber(value);
+        if (!Double.isNaN(number)) {
+            cell.setCellValue(number);
+            return;
+        }
+
+        int bool = ValueClassifier.parseBoolean(value);
+        if (bool != ValueClassifier.NOT_BOOLEAN) {
+            cell.setCellValue(bool == ValueClassifier.TRUE);
         } else {
             cell.setCellValue(value);
         }
@@ -183,80 +451,27 @@ public class SimpleExcelExporter {
     }
 
     /**
-     * Create red row style (entire row highlighted)
+     * The cell styles of a workbook, shared by all its sheets
      */
-    private CellStyle createRedRowStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-
-        // Red background
-        style.setFillForegroundColor(IndexedColors.RED.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+    private final class Styles {
+        private final CellStyle header;
+        private final CellStyle normal;
 
-        // White bold font
-        Font whiteFont = workbook.createFont();
-        whiteFont.setColor(IndexedColors.WHITE.getIndex());
-        whiteFont.setBold(true);
-        style.setFont(whiteFont);
-
-        // Add borders
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
-        style.setTopBorderColor(IndexedColors.BLACK.getIndex());
-        style.setBottomBorderColor(IndexedColors.BLACK.getIndex());
-        style.setLeftBorderColor(IndexedColors.BLACK.getIndex());
-        style.setRightBorderColor(IndexedColors.BLACK.getIndex());
-
-        return style;
-    }
-
-    /**
-     * Sort data by Department (column 3) then Full Name (column 2)
-     */
-    private List<List<String>> sortData(List<List<String>> data) {
-        if (data == null || data.isEmpty()) {
-            return new ArrayList<>(data);
+        Styles(Workbook workbook) {
+            header = createHeaderStyle(workbook);
+            normal = createNormalStyle(workbook);
         }
-
-        List<List<String>> sortedList = new ArrayList<>(data);
-
-        sortedList.sort((row1, row2) -> {
-            // Make sure rows have enough columns
-            if (row1.size() <= DEPARTMENT_COLUMN_INDEX || row2.size() <= DEPARTMENT_COLUMN_INDEX) {
-                return 0;
-            }
-
-            // First, compare by Department
-            String dept1 = row1.get(DEPARTMENT_COLUMN_INDEX);
-            String dept2 = row2.get(DEPARTMENT_COLUMN_INDEX);
-
-            int deptCompare = compareStrings(dept1, dept2);
-            if (deptCompare != 0) {
-                return deptCompare;
-            }
-
-            // If departments are equal, compare by Full Name
-            if (row1.size() > FULL_NAME_COLUMN_INDEX && row2.size() > FULL_NAME_COLUMN_INDEX) {
-                String name1 = row1.get(FULL_NAME_COLUMN_INDEX);
-                String name2 = row2.get(FULL_NAME_COLUMN_INDEX);
-                return compareStrings(name1, name2);
-            }
-
-            return 0;
-        });
-
-        return sortedList;
     }
 
     /**
-     * Helper method to compare strings with null safety
+     * Row indices in the order of the input, for data that is already sorted
      */
-    private int compareStrings(String str1, String str2) {
-        if (str1 == null && str2 == null) return 0;
-        if (str1 == null) return -1;
-        if (str2 == null) return 1;
-        return str1.compareToIgnoreCase(str2); // Case-insensitive comparison
+    private static int[] inputOrder(GradeTable table) {
+        int[] order = new int[table.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        return order;
     }
 
     /**
@@ -273,13 +488,23 @@ public class SimpleExcelExporter {
         if (columnHeaders.length > 0) {
             headers = List.of(columnHeaders);
         } else {
-            // Default headers for your 5-column structure
-            headers = List.of("ID", "First Name", "Full Name", "Department", "Score");
+            headers = DEFAULT_HEADERS;
         }
 
         exportToExcel(filePath, data, headers);
     }
 
+    /**
+     * Export a typed table with custom headers
+     * @param filePath Path to save the Excel file
+     * @param table Rows from SimpleExcelReader.readTable
+     * @param columnHeaders Headers for the columns
+     * @throws IOException if file cannot be created
+     */
+    public void exportWithHeaders(String filePath, GradeTable table, String... columnHeaders) throws IOException {
+        exportToExcel(filePath, table, columnHeaders.length > 0 ? List.of(columnHeaders) : DEFAULT_HEADERS);
+    }
+
     /**
      * Export with sorting and highlighting but without headers
      */
@@ -288,22 +513,97 @@ public class SimpleExcelExporter {
     }
 
     /**
-     * Helper method to check if string is numeric
+     * Enable or disable streaming (SXSSF) writes of .xlsx files (enabled by default).
+     * When disabled the whole workbook is built in memory and columns are auto-sized.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Enable or disable autoSizeColumn for in-memory workbooks (enabled by default).
+     * When disabled, widths come from the value lengths and AWT is never loaded.
      */
-    private boolean isNumeric(String str) {
-        if (str == null || str.trim().isEmpty()) {
-            return false;
+    public void setAutoSizeColumns(boolean autoSizeColumns) {
+        this.autoSizeColumns = autoSizeColumns;
+    }
+
+    public boolean isAutoSizeColumns() {
+        return autoSizeColumns;
+    }
+
+    /**
+     * Set how many rows the streaming workbook keeps in memory before flushing to disk
+     */
+    public void setRowAccessWindow(int rowAccessWindow) {
+        if (rowAccessWindow < 1) {
+            throw new IllegalArgumentException("Row access window must be at least 1");
         }
-        return str.matches("-?\\d+(\\.\\d+)?");
+        this.rowAccessWindow = rowAccessWindow;
+    }
+
+    public int getRowAccessWindow() {
+        return rowAccessWindow;
     }
 
     /**
-     * Helper method to check if string is boolean
+     * Enable or disable sorting by department and full name (enabled by default).
+     * Disable it when the input is already in that order to write rows as they come.
      */
-    private boolean isBoolean(String str) {
-        if (str == null) return false;
-        String lower = str.toLowerCase();
-        return lower.equals("true") || lower.equals("false");
+    public void setSortRows(boolean sortRows) {
+        this.sortRows = sortRows;
+    }
+
+    public boolean isSortRows() {
+        return sortRows;
+    }
+
+    /**
+     * Enable or disable writing .xlsx files directly as ZIP parts, without the POI object model
+     * (disabled by default). The output has the same cells, styles, widths and highlighting;
+     * column widths always come from the value lengths. .xls files are always written through POI.
+     */
+    public void setDirectWriter(boolean directWriter) {
+        this.directWriter = directWriter;
+    }
+
+    public boolean isDirectWriter() {
+        return directWriter;
+    }
+
+    /**
+     * Set the deflate level of the direct writer, 0 (no compression, fastest) to 9 (smallest file)
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Record stage timings of the next exports into the given metrics, null to stop
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Describe the settings that change the exported file, incremental runs
+     * convert a file again when this changes
+     */
+    public String getSettingsFingerprint() {
+        return "highlight=" + highlightRules + ";streaming=" + streaming + ";autoSizeColumns=" + autoSizeColumns
+                + ";sortRows=" + sortRows
+                + (directWriter ? ";directWriter=true;compressionLevel=" + compressionLevel : "");
     }
 
     /**
@@ -311,12 +611,33 @@ public class SimpleExcelExporter {
      */
     public void exportWithThreshold(String filePath, List<List<String>> data,
                                     List<String> headers, double threshold) throws IOException {
-        // You can create a copy with different threshold by:
-        // 1. Creating a new instance with different MIN_THRESHOLD, or
-        // 2. Making MIN_THRESHOLD a class variable with setter
-        System.out.println("Using threshold: " + threshold);
-        // For now, we'll just use the fixed threshold
-        exportToExcel(filePath, data, headers);
+        export(filePath, GradeTable.fromRows(data), null, headers, HighlightRules.below(threshold));
+    }
+
+    /**
+     * Set the score below which rows are highlighted red (default MIN_THRESHOLD),
+     * replaces the highlight rules with a single band
+     */
+    public void setThreshold(double threshold) {
+        this.highlightRules = HighlightRules.below(threshold);
+    }
+
+    /**
+     * Score below which rows are highlighted by some band
+     */
+    public double getThreshold() {
+        return highlightRules.getThreshold();
+    }
+
+    /**
+     * Set the score bands that highlight rows (default a red band below MIN_THRESHOLD)
+     */
+    public void setHighlightRules(HighlightRules highlightRules) {
+        this.highlightRules = highlightRules;
+    }
+
+    public HighlightRules getHighlightRules() {
+        return highlightRules;
     }
 
 }
\ No newline at end of file
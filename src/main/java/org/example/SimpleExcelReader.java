@@ -1,93 +1,444 @@
 package org.example;
 
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.xml.sax.SAXException;
+
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SimpleExcelReader {
 
+    private static final ColumnMapping.Field[] FIELDS = ColumnMapping.Field.values();
+
+    private ColumnMapping columnMapping = ColumnMapping.defaults(); // Where the output columns come from
+    private boolean streaming = true; // Stream files instead of loading the whole workbook
+    private SheetSelection sheetSelection = SheetSelection.FIRST; // Sheets read by readSheets
+    private boolean parallelSheets = true; // Parse the sheets of an .xlsx file concurrently
+    private boolean evaluateFormulas; // Recalculate formula cells instead of reading their cached results
+    private ConversionMetrics metrics; // Stage timings of the file being read, may be null
+
     /**
      * MODIFIED: Read columns 0, 1, 4, 10 and add Full Name after column 1
+     * (or the columns of the configured ColumnMapping)
      */
     public List<List<String>> readColumns(String filePath) throws IOException {
-        List<List<String>> result = new ArrayList<>();
+        return readTable(filePath).toRows();
+    }
 
-        try (FileInputStream fis = new FileInputStream(filePath)) {
-            Workbook workbook;
+    /**
+     * Read columns 0, 1, 4, 10 into a typed table, Full Name is derived from columns 1 and 0
+     * (or the columns of the configured ColumnMapping).
+     * Numeric scores stay numbers, they are never formatted to text.
+     */
+    public GradeTable readTable(String filePath) throws IOException {
+        startStage(ConversionMetrics.Stage.OPEN);
+        if (filePath.endsWith(CsvReader.EXTENSION)) {
+            return readTableCsv(filePath);
+        }
+        if (isStreamingRead() && filePath.endsWith(".xlsx")) {
+            try {
+                return readTableStreaming(filePath);
+            } catch (OpenXML4JException | SAXException | POIXMLException e) {
+                // Fall back to the DOM reader, it copes with some packages the SAX path does not
+                System.err.println("Streaming read failed for " + filePath + ", loading full workbook: " + e.getMessage());
+                startStage(ConversionMetrics.Stage.OPEN);
+            }
+        } else if (isStreamingRead() && filePath.endsWith(".xls")) {
+            return readTableEvents(filePath);
+        }
+        return readTableDom(filePath);
+    }
+
+    /**
+     * Read every sheet of the sheet selection into its own table, like readTable does for the first sheet
+     * @return Table per sheet name, in workbook order
+     * @throws IOException if the file cannot be read or no sheet is selected
+     */
+    public Map<String, GradeTable> readSheets(String filePath) throws IOException {
+        startStage(ConversionMetrics.Stage.OPEN);
+        Map<String, TableBuilder> builders = new LinkedHashMap<>();
+        if (filePath.endsWith(CsvReader.EXTENSION)) {
+            CsvReader reader = new CsvReader();
+            reader.setMetrics(metrics);
+            reader.readSheets(filePath, sheetSelection, name -> newBuilder(builders, name));
+            return tables(filePath, builders);
+        }
+        if (isStreamingRead() && filePath.endsWith(".xlsx")) {
+            try {
+                XlsxStreamingReader reader = new XlsxStreamingReader();
+                reader.setMetrics(metrics);
+                if (!parallelSheets) {
+                    reader.setExecutor(null);
+                }
+                reader.readSheets(filePath, sheetSelection, name -> newBuilder(builders, name));
+                return tables(filePath, builders);
+            } catch (OpenXML4JException | SAXException | POIXMLException e) {
+                System.err.println("Streaming read failed for " + filePath + ", loading full workbook: " + e.getMessage());
+                builders.clear();
+                startStage(ConversionMetrics.Stage.OPEN);
+            }
+        } else if (isStreamingRead() && filePath.endsWith(".xls")) {
+            XlsEventReader reader = new XlsEventReader();
+            reader.setMetrics(metrics);
+            reader.readSheets(filePath, sheetSelection, name -> newBuilder(builders, name));
+            return tables(filePath, builders);
+        }
+
+        try (Workbook workbook = openWorkbook(filePath)) {
+            startStage(ConversionMetrics.Stage.READ);
+            FormulaEvaluator evaluator = formulaEvaluator(workbook);
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                Sheet sheet = workbook.getSheetAt(i);
+                if (sheetSelection.matches(i, sheet.getSheetName())) {
+                    readSheet(sheet, newBuilder(builders, sheet.getSheetName()), evaluator);
+                }
+            }
+        }
+        return tables(filePath, builders);
+    }
+
+    private TableBuilder newBuilder(Map<String, TableBuilder> builders, String sheetName) {
+        TableBuilder builder = new TableBuilder();
+        builders.put(sheetName, builder);
+        return builder;
+    }
+
+    private Map<String, GradeTable> tables(String filePath, Map<String, TableBuilder> builders) throws IOException {
+        if (builders.isEmpty()) {
+            throw new IOException("No sheet of " + filePath + " matches \"" + sheetSelection + "\"");
+        }
+        Map<String, GradeTable> tables = new LinkedHashMap<>();
+        builders.forEach((name, builder) -> tables.put(name, builder.table));
+        return tables;
+    }
+
+    /**
+     * Read an .xlsx file row by row through the SAX event API, without building the workbook
+     */
+    private GradeTable readTableStreaming(String filePath)
+            throws IOException, OpenXML4JException, SAXException {
+        TableBuilder builder = new TableBuilder();
+        XlsxStreamingReader reader = new XlsxStreamingReader();
+        reader.setMetrics(metrics);
+        reader.read(filePath, builder, builder);
+        return builder.table;
+    }
+
+    /**
+     * Read a legacy .xls file from the HSSF record stream, without building the workbook
+     */
+    private GradeTable readTableEvents(String filePath) throws IOException {
+        TableBuilder builder = new TableBuilder();
+        XlsEventReader reader = new XlsEventReader();
+        reader.setMetrics(metrics);
+        reader.read(filePath, builder, builder);
+        return builder.table;
+    }
+
+    /**
+     * Read a CSV export from the memory-mapped file, formulas and styles do not exist there
+     */
+    private GradeTable readTableCsv(String filePath) throws IOException {
+        TableBuilder builder = new TableBuilder();
+        CsvReader reader = new CsvReader();
+        reader.setMetrics(metrics);
+        reader.read(filePath, builder, builder);
+        return builder.table;
+    }
+
+    /**
+     * Read a file by loading the whole workbook into memory
+     */
+    private GradeTable readTableDom(String filePath) throws IOException {
+        TableBuilder builder = new TableBuilder();
+
+        try (Workbook workbook = openWorkbook(filePath)) {
+            startStage(ConversionMetrics.Stage.READ);
+            readSheet(workbook.getSheetAt(0), builder, formulaEvaluator(workbook));
+        }
 
+        return builder.table;
+    }
+
+    /**
+     * One evaluator per workbook when formulas are evaluated, it caches every result it computes,
+     * so cells referenced by many formulas are calculated once. Null to read the cached results.
+     */
+    private FormulaEvaluator formulaEvaluator(Workbook workbook) {
+        return evaluateFormulas ? workbook.getCreationHelper().createFormulaEvaluator() : null;
+    }
+
+    private static Workbook openWorkbook(String filePath) throws IOException {
+        try (FileInputStream fis = new FileInputStream(filePath)) {
             if (filePath.endsWith(".xlsx")) {
-                workbook = new XSSFWorkbook(fis);
+                return new XSSFWorkbook(fis);
             } else if (filePath.endsWith(".xls")) {
-                workbook = new HSSFWorkbook(fis);
+                return new HSSFWorkbook(fis);
             } else {
                 throw new IOException("Unsupported file format. Use .xls or .xlsx");
             }
+        }
+    }
 
-            try {
-                Sheet sheet = workbook.getSheetAt(0);
-                boolean isFirstRow = true; // Flag to track first row
-
-                for (Row row : sheet) {
-                    // Skip the first row
-                    if (isFirstRow) {
-                        isFirstRow = false;
-                        continue; // Skip to next row
-                    }
-
-                    List<String> rowData = new ArrayList<>();
-
-                    // Get values for columns 0, 1, 4, 10
-                    String col0 = cellToString(row.getCell(0));
-                    String col1 = cellToString(row.getCell(1));
-                    String col4 = cellToString(row.getCell(4));
-                    String col10 = cellToString(row.getCell(10));
-
-                    // Add to row in order: col0, col1, Full Name, col4, col10
-                    rowData.add(col0);                     // Column 0
-                    rowData.add(col1);                     // Column 1
-                    rowData.add((col1 + " " + col0).trim()); // Full Name (new column)
-                    rowData.add(col4);                     // Column 4
-                    rowData.add(col10);                    // Column 10
-
-                    result.add(rowData);
+    /**
+     * Read the data rows of a loaded sheet, skipping its first row (the header)
+     */
+    private void readSheet(Sheet sheet, TableBuilder builder, FormulaEvaluator evaluator) {
+        boolean isFirstRow = true; // Flag to track first row
+        int[] columns = builder.needsHeader() ? null : builder.resolve(null);
+        String[] values = null;
+        double[] numbers = null;
+
+        for (Row row : sheet) {
+            // Skip the first row, it is only read when columns are picked by header name
+            if (isFirstRow) {
+                isFirstRow = false;
+                if (columns == null) {
+                    columns = builder.resolve(headerTexts(row));
+                }
+                continue; // Skip to next row
+            }
+            if (values == null) {
+                values = new String[columns.length];
+                numbers = new double[columns.length];
+            }
+
+            // Get values for the projected columns
+            for (int i = 0; i < columns.length; i++) {
+                Cell cell = row.getCell(columns[i]);
+                if (evaluator != null && cell != null && cell.getCellType() == CellType.FORMULA) {
+                    evaluate(evaluator, cell);
+                }
+                if (isPlainNumber(cell)) {
+                    values[i] = null;
+                    numbers[i] = cell.getNumericCellValue();
+                } else {
+                    values[i] = cellToString(cell);
+                }
+            }
+
+            builder.row(values, numbers);
+        }
+    }
+
+    /**
+     * Text of every cell of the header row, by column index
+     */
+    private String[] headerTexts(Row row) {
+        String[] header = new String[Math.max(0, row.getLastCellNum())];
+        for (Cell cell : row) {
+            header[cell.getColumnIndex()] = cellToString(cell);
+        }
+        return header;
+    }
+
+    private static String text(String[] values, double[] numbers, int index) {
+        return values[index] != null ? values[index] : formatNumber(numbers[index]);
+    }
+
+    /**
+     * Builds the table from the projected columns of the column mapping, one row at a time
+     */
+    private final class TableBuilder implements SheetRows {
+        private final GradeTable table = new GradeTable();
+        private final ColumnMapping mapping = columnMapping;
+        private final String[] fieldValues = new String[FIELDS.length];
+        private ColumnMapping.Projection projection;
+
+        @Override
+        public boolean needsHeader() {
+            return mapping.needsHeader();
+        }
+
+        @Override
+        public int[] resolve(String[] header) {
+            projection = mapping.resolve(header);
+            return projection.getColumns();
+        }
+
+        /**
+         * Add a row to the table
+         * @param values Text of each projected column, null where the cell is numeric
+         * @param numbers Numeric value where values is null
+         */
+        @Override
+        public void row(String[] values, double[] numbers) {
+            for (ColumnMapping.Field field : FIELDS) {
+                int slot = projection.getSlot(field);
+                fieldValues[field.ordinal()] = slot >= 0 ? text(values, numbers, slot) : "";
+            }
+            for (ColumnMapping.Field field : FIELDS) {
+                if (mapping.isDerived(field)) {
+                    fieldValues[field.ordinal()] = mapping.derive(field, fieldValues);
                 }
-            } finally {
-                workbook.close();
+            }
+
+            String lastName = fieldValues[ColumnMapping.Field.LAST_NAME.ordinal()];
+            String firstName = fieldValues[ColumnMapping.Field.FIRST_NAME.ordinal()];
+            String fullName = fieldValues[ColumnMapping.Field.FULL_NAME.ordinal()];
+            String department = fieldValues[ColumnMapping.Field.DEPARTMENT.ordinal()];
+
+            // Keep numeric scores as numbers unless the mapping asks for text
+            int scoreSlot = projection.getSlot(ColumnMapping.Field.SCORE);
+            if (scoreSlot >= 0 && values[scoreSlot] == null && !mapping.isDerived(ColumnMapping.Field.SCORE)
+                    && mapping.getType(ColumnMapping.Field.SCORE) == ColumnMapping.Type.NUMBER) {
+                table.addRow(lastName, firstName, fullName, department, numbers[scoreSlot]);
+            } else {
+                table.addRow(lastName, firstName, fullName, department,
+                        fieldValues[ColumnMapping.Field.SCORE.ordinal()]);
             }
         }
+    }
+
+    private static boolean isPlainNumber(Cell cell) {
+        return cell != null && valueType(cell) == CellType.NUMERIC && !DateUtil.isCellDateFormatted(cell);
+    }
+
+    /**
+     * Type of the value of a cell, the type of the cached result for formula cells.
+     * An .xlsx formula saved without a result is blank like in the streaming reader, POI reports 0.
+     */
+    private static CellType valueType(Cell cell) {
+        CellType type = cell.getCellType();
+        if (type != CellType.FORMULA) {
+            return type;
+        }
+        if (cell instanceof XSSFCell && !((XSSFCell) cell).getCTCell().isSetV()) {
+            return CellType.BLANK;
+        }
+        return cell.getCachedFormulaResultType();
+    }
+
+    /**
+     * Recalculate a formula cell, storing the result as its cached result.
+     * Formulas the evaluator cannot handle, like links to other workbooks, keep the result Excel saved.
+     */
+    private static void evaluate(FormulaEvaluator evaluator, Cell cell) {
+        try {
+            evaluator.evaluateFormulaCell(cell);
+        } catch (RuntimeException e) {
+            System.err.println("Unable to evaluate " + cell.getAddress() + " (" + cell.getCellFormula()
+                    + "), using its saved result: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Enable or disable streaming reads of .xlsx and .xls files (enabled by default)
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Whether files are read by the streaming readers, which cannot evaluate formulas
+     */
+    boolean isStreamingRead() {
+        return streaming && !evaluateFormulas;
+    }
+
+    /**
+     * Enable or disable recalculating formula cells (disabled by default).
+     * By default a formula cell reads the result Excel saved with it, which costs nothing. Files
+     * written by tools that do not calculate may hold stale or no results, evaluating fixes them
+     * but loads the whole workbook, the streaming readers cannot evaluate.
+     * Only the cells that are read are evaluated, together with the cells their formulas need.
+     */
+    public void setEvaluateFormulas(boolean evaluateFormulas) {
+        this.evaluateFormulas = evaluateFormulas;
+    }
+
+    public boolean isEvaluateFormulas() {
+        return evaluateFormulas;
+    }
+
+    /**
+     * Set which sheets readSheets reads, SheetSelection.FIRST by default
+     */
+    public void setSheetSelection(SheetSelection sheetSelection) {
+        this.sheetSelection = sheetSelection;
+    }
+
+    public SheetSelection getSheetSelection() {
+        return sheetSelection;
+    }
+
+    /**
+     * Enable or disable parsing the sheets of a streamed .xlsx file concurrently (enabled by default).
+     * Sheets of .xls files are always read one after another, their records form a single stream.
+     */
+    public void setParallelSheets(boolean parallelSheets) {
+        this.parallelSheets = parallelSheets;
+    }
 
-        return result;
+    public boolean isParallelSheets() {
+        return parallelSheets;
     }
 
     /**
-     * Helper method unchanged
+     * Set where the output columns are read from, ColumnMapping.defaults() by default
      */
-    private String cellToString(Cell cell) {
+    public void setColumnMapping(ColumnMapping columnMapping) {
+        this.columnMapping = columnMapping;
+    }
+
+    public ColumnMapping getColumnMapping() {
+        return columnMapping;
+    }
+
+    /**
+     * Record stage timings of the next reads into the given metrics, null to stop
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void startStage(ConversionMetrics.Stage stage) {
+        if (metrics != null) {
+            metrics.startStage(stage);
+        }
+    }
+
+    /**
+     * Text of a cell, trimmed. A formula cell gives its cached result (or the evaluated one with
+     * setEvaluateFormulas), never the formula text. Package-private for the benchmarks
+     */
+    String cellToString(Cell cell) {
         if (cell == null) return "";
 
-        switch (cell.getCellType()) {
+        // Formula cells read their cached result, the formula text is not a grade
+        switch (valueType(cell)) {
             case STRING:
                 return cell.getStringCellValue().trim();
             case NUMERIC:
                 if (DateUtil.isCellDateFormatted(cell)) {
                     return cell.getDateCellValue().toString();
                 }
-                double num = cell.getNumericCellValue();
-                if (num == Math.floor(num)) {
-                    return String.valueOf((int) num);
-                }
-                return String.valueOf(num);
+                return formatNumber(cell.getNumericCellValue());
             case BOOLEAN:
                 return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.toString();
             default:
                 return "";
         }
     }
 
+    /**
+     * Format a numeric cell value, whole numbers without decimals
+     */
+    static String formatNumber(double num) {
+        return ValueClassifier.formatNumber(num);
+    }
+
 }
\ No newline at end of file
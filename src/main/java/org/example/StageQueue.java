@@ -0,0 +1,54 @@
+package org.example;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded queue in front of a pipeline stage that remembers how deep it got. A queue that is often
+ * full points at a stage that needs more threads, one that stays empty at a stage that has too many.
+ */
+final class StageQueue<T> {
+
+    private final BlockingQueue<T> queue;
+    private final int capacity;
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    StageQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add an item, waiting while the queue is full
+     */
+    void put(T item) throws InterruptedException {
+        queue.put(item);
+        maxDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    /**
+     * Remove the oldest item, waiting while the queue is empty
+     */
+    T take() throws InterruptedException {
+        return queue.take();
+    }
+
+    /**
+     * Items waiting right now
+     */
+    int depth() {
+        return queue.size();
+    }
+
+    /**
+     * Most items that were waiting at the same time
+     */
+    int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,194 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Master list of students with their authoritative names and classes, joined with every converted
+ * table so stale or inconsistent names and departments of class exports need no fixing by hand.
+ * The roster is read like an input file, through a ColumnMapping; its first output column is the
+ * student ID or username and the key of the join, first name, full name and department are copied
+ * from it. Keys are matched ignoring case and surrounding spaces.
+ * <p>
+ * The keys live in an open addressing hash table of row numbers with linear probing, next to the
+ * roster's own GradeTable, so the index costs two int arrays on top of the roster and a lookup
+ * compares one cached hash before it compares a string.
+ */
+public class StudentRoster {
+
+    private static final int KEY_COLUMN = 0;
+
+    private final Path file;
+    private final BasicFileAttributes loadedAttributes;
+    private final GradeTable table;
+    private final String[] keys;  // Normalized key by roster row, null for rows without a key
+    private final int[] hashes;   // Spread hash of the key by roster row
+    private final int[] slots;    // Roster row + 1 by hash slot, 0 for a free slot
+    private final int mask;
+    private int students;
+    private int duplicates;       // Rows whose key an earlier row already has, they are ignored
+
+    private StudentRoster(Path file, BasicFileAttributes loadedAttributes, GradeTable table) {
+        this.file = file;
+        this.loadedAttributes = loadedAttributes;
+        this.table = table;
+        this.keys = new String[table.size()];
+        this.hashes = new int[table.size()];
+
+        // At most half full, probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(2, table.size()) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int row = 0; row < table.size(); row++) {
+            insert(row, normalize(table.getText(row, KEY_COLUMN)));
+        }
+    }
+
+    /**
+     * Read the first sheet of a roster workbook or CSV file into an index
+     * @param mapping Where the key, names and department are in the roster. The key is read into
+     *                the first output column
+     * @throws IOException if the file cannot be read
+     */
+    public static StudentRoster load(Path file, ColumnMapping mapping) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        SimpleExcelReader reader = new SimpleExcelReader();
+        reader.setColumnMapping(mapping);
+        StudentRoster roster = new StudentRoster(file, attributes, reader.readTable(file.toString()));
+        if (roster.duplicates > 0) {
+            System.err.println("Roster " + file.getFileName() + " lists " + roster.duplicates
+                    + " students more than once, the first row of each is used");
+        }
+        return roster;
+    }
+
+    /**
+     * The default layout of a roster: student ID, first name, full name and class in columns A to D
+     */
+    public static ColumnMapping defaultMapping() {
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.setSourceIndex(ColumnMapping.Field.LAST_NAME, 0);
+        mapping.setSourceIndex(ColumnMapping.Field.FIRST_NAME, 1);
+        mapping.setSourceIndex(ColumnMapping.Field.FULL_NAME, 2);
+        mapping.setSourceIndex(ColumnMapping.Field.DEPARTMENT, 3);
+        return mapping;
+    }
+
+    private void insert(int row, String key) {
+        if (key == null) {
+            return;
+        }
+        int hash = spread(key.hashCode());
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            if (slots[slot] == 0) {
+                keys[row] = key;
+                hashes[row] = hash;
+                slots[slot] = row + 1;
+                students++;
+                return;
+            }
+            int other = slots[slot] - 1;
+            if (hashes[other] == hash && keys[other].equals(key)) {
+                duplicates++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Roster row of a student
+     * @return The row, -1 when the student is not on the roster
+     */
+    public int find(String studentId) {
+        String key = normalize(studentId);
+        if (key == null) {
+            return -1;
+        }
+        int hash = spread(key.hashCode());
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (hashes[row] == hash && keys[row].equals(key)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replace first name, full name and department of every row of a table that is on the roster.
+     * Empty roster cells keep the value of the table.
+     * @return Keys of the rows that are not on the roster, in row order
+     */
+    public List<String> join(GradeTable target) {
+        List<String> unmatched = new ArrayList<>();
+        for (int row = 0; row < target.size(); row++) {
+            String studentId = target.getText(row, KEY_COLUMN);
+            int rosterRow = find(studentId);
+            if (rosterRow < 0) {
+                unmatched.add(studentId != null ? studentId.trim() : "");
+                continue;
+            }
+            target.setNames(row, orElse(table.getFirstName(rosterRow), target.getFirstName(row)),
+                    orElse(table.getFullName(rosterRow), target.getFullName(row)),
+                    orElse(table.getDepartment(rosterRow), target.getDepartment(row)));
+        }
+        return unmatched;
+    }
+
+    private static String orElse(String value, String fallback) {
+        return value != null && !value.isEmpty() ? value : fallback;
+    }
+
+    private static String normalize(String key) {
+        if (key == null) {
+            return null;
+        }
+        String trimmed = key.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Mix the high bits into the low ones, the slot is taken from the low bits
+     */
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Whether the roster file still has the size and modification time it had when it was loaded
+     */
+    public boolean isCurrent() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() == loadedAttributes.size()
+                    && attributes.lastModifiedTime().equals(loadedAttributes.lastModifiedTime());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Describes the loaded file, so outputs joined with an older roster are converted again
+     */
+    String getFingerprint() {
+        return file.toAbsolutePath().normalize() + "@" + loadedAttributes.size() + ":"
+                + loadedAttributes.lastModifiedTime().toMillis();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Number of students on the roster, duplicates and rows without a key not counted
+     */
+    public int size() {
+        return students;
+    }
+}
@@ -0,0 +1,168 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * Detects and parses numbers and booleans in cell text in a single pass,
+ * without regular expressions or intermediate strings.
+ */
+final class ValueClassifier {
+
+    public static final int NOT_BOOLEAN = -1;
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    // Largest mantissa that is still exact as a double (2^53)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // Stop accumulating digits before the mantissa can overflow a long
+    private static final long MANTISSA_LIMIT = Long.MAX_VALUE / 10 - 9;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private ValueClassifier() {
+    }
+
+    /**
+     * Parse a decimal number like "85", "-3.5", "85.", ".5" or "1.2E3"
+     * @return The value, or NaN when the text is not a number (including null, "" and overflows)
+     */
+    static double parseNumber(String str) {
+        if (str == null) {
+            return Double.NaN;
+        }
+
+        int length = str.length();
+        int i = 0;
+        boolean negative = false;
+
+        if (i < length && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+            negative = str.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean truncated = false; // More significant digits than a long holds
+
+        // Integer part
+        for (; i < length; i++) {
+            int digit = str.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            anyDigit = true;
+            if (mantissa < MANTISSA_LIMIT) {
+                mantissa = mantissa * 10 + digit;
+            } else {
+                exponent++;
+                truncated |= digit != 0;
+            }
+        }
+
+        // Fraction part, "85." is accepted
+        if (i < length && str.charAt(i) == '.') {
+            for (i++; i < length; i++) {
+                int digit = str.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                anyDigit = true;
+                if (mantissa < MANTISSA_LIMIT) {
+                    mantissa = mantissa * 10 + digit;
+                    exponent--;
+                } else {
+                    truncated |= digit != 0;
+                }
+            }
+        }
+
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+
+        // Exponent part
+        if (i < length && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+                negativeExponent = str.charAt(i) == '-';
+                i++;
+            }
+
+            int exponentStart = i;
+            int explicitExponent = 0;
+            for (; i < length; i++) {
+                int digit = str.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                if (explicitExponent < 100_000) {
+                    explicitExponent = explicitExponent * 10 + digit;
+                }
+            }
+            if (i == exponentStart) {
+                return Double.NaN; // "1e" or "1e+"
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (i != length) {
+            return Double.NaN; // Trailing characters
+        }
+
+        double value;
+        if (!truncated && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact, so a single multiplication or division is correctly rounded
+            value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            // Rare: long or extreme numbers, the syntax is already known to be valid
+            value = Math.abs(Double.parseDouble(str));
+            if (Double.isInfinite(value)) {
+                return Double.NaN; // A cell can't hold it, keep the text
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Check whether the text is a number
+     */
+    static boolean isNumeric(String str) {
+        return !Double.isNaN(parseNumber(str));
+    }
+
+    /**
+     * Format a number, whole numbers without decimals ("85", "2147483648"), others like Double.toString
+     */
+    static String formatNumber(double num) {
+        if (num != Math.floor(num) || Double.isInfinite(num)) {
+            return String.valueOf(num);
+        }
+        // Every whole double below 2^63 converts to a long exactly, an int would overflow above 2^31
+        if (Math.abs(num) < 0x1p63) {
+            return Long.toString((long) num);
+        }
+        return BigDecimal.valueOf(num).toPlainString();
+    }
+
+    /**
+     * Detect "true" or "false", ignoring case
+     * @return TRUE, FALSE or NOT_BOOLEAN
+     */
+    static int parseBoolean(String str) {
+        if (str == null) {
+            return NOT_BOOLEAN;
+        }
+        if (str.length() == 4 && str.regionMatches(true, 0, "true", 0, 4)) {
+            return TRUE;
+        }
+        if (str.length() == 5 && str.regionMatches(true, 0, "false", 0, 5)) {
+            return FALSE;
+        }
+        return NOT_BOOLEAN;
+    }
+}
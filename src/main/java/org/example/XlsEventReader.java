@@ -0,0 +1,403 @@
+package org.example;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads legacy .xls files through the HSSF event API.
+ * Records are streamed from the POIFS "Workbook" entry, only the cell records of the
+ * projected columns are decoded and nothing past the last selected worksheet is parsed.
+ * The record stream is sequential, so several sheets are read one after another in a single pass.
+ */
+public class XlsEventReader {
+
+    private ConversionMetrics metrics; // Marks where opening ends and reading starts, may be null
+
+    /**
+     * Read the first sheet, skipping its first row (the header)
+     * @param filePath Path of the .xls file
+     * @param columns Source column indices to project, in output order
+     * @param handler Receives one call per data row
+     */
+    public void read(String filePath, int[] columns, RowHandler handler) throws IOException {
+        read(filePath, ColumnProjection.of(columns), handler);
+    }
+
+    /**
+     * Read the first sheet, skipping its first row (the header)
+     * @param filePath Path of the .xls file
+     * @param projection Source columns to decode, possibly picked from the header row
+     * @param handler Receives one call per data row
+     */
+    void read(String filePath, ColumnProjection projection, RowHandler handler) throws IOException {
+        readSheets(filePath, SheetSelection.FIRST, name -> SheetRows.of(projection, handler));
+    }
+
+    /**
+     * Read every selected worksheet, skipping the first row (the header) of each
+     * @param filePath Path of the .xls file
+     * @param selection Sheets to read
+     * @param sheets Creates the projection and handler of a sheet from its name, in workbook order
+     * @return Number of sheets read
+     */
+    int readSheets(String filePath, SheetSelection selection, Function<String, ? extends SheetRows> sheets)
+            throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new File(filePath), true)) {
+            WorkbookListener listener = new WorkbookListener(selection, sheets, metrics);
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+
+            try {
+                new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+            } catch (HSSFUserException e) {
+                throw new IOException("Unable to read " + filePath, e);
+            }
+            return listener.sheetCount;
+        }
+    }
+
+    /**
+     * Record the start of the READ stage into the given metrics, null to stop
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Tracks the workbook globals and hands the cell records of selected worksheets to a SheetReader.
+     */
+    private static class WorkbookListener extends AbortableHSSFListener {
+        private final SheetSelection selection;
+        private final Function<String, ? extends SheetRows> sheets;
+        private final ConversionMetrics metrics;
+
+        // Needed to render number formats, same as the DOM path
+        private final FormatTrackingHSSFListener formatTracker;
+
+        private SSTRecord sst;
+        private boolean date1904;
+        private final List<BoundSheetRecord> boundSheets = new ArrayList<>();
+        private String[] sheetNames;   // In stream order, known once the globals are done
+        private int lastSelected = -1; // Stream position of the last selected sheet
+
+        private int substreamIndex = -1; // Position of the current sheet substream, -1 in the globals
+        private boolean inSubstream;
+        private int nestedDepth;         // Charts embedded in a worksheet have their own BOF/EOF
+        private SheetReader sheet;       // Reader of the current sheet, null when it is skipped
+        private int sheetCount;
+
+        WorkbookListener(SheetSelection selection, Function<String, ? extends SheetRows> sheets,
+                         ConversionMetrics metrics) {
+            this.selection = selection;
+            this.sheets = sheets;
+            this.metrics = metrics;
+            this.formatTracker = new FormatTrackingHSSFListener(record -> { });
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            if (substreamIndex < 0) {
+                // Workbook globals: formats, shared strings, sheet names
+                formatTracker.processRecordInternally(record);
+            }
+
+            switch (record.getSid()) {
+                case BOFRecord.sid:
+                    BOFRecord bof = (BOFRecord) record;
+                    if (bof.getType() == BOFRecord.TYPE_WORKBOOK) {
+                        break;
+                    }
+                    if (inSubstream) {
+                        nestedDepth++;
+                        break;
+                    }
+                    inSubstream = true;
+                    substreamIndex++;
+                    if (substreamIndex == 0) {
+                        selectSheets();
+                    }
+                    if (substreamIndex > lastSelected) {
+                        return 1; // Stop, no selected sheet follows
+                    }
+                    String name = substreamIndex < sheetNames.length ? sheetNames[substreamIndex] : null;
+                    if (bof.getType() == BOFRecord.TYPE_WORKSHEET && selection.matches(substreamIndex, name)) {
+                        if (sheetCount++ == 0 && metrics != null) {
+                            // Workbook globals are done, the first selected sheet starts
+                            metrics.startStage(ConversionMetrics.Stage.READ);
+                        }
+                        sheet = new SheetReader(sheets.apply(name));
+                    }
+                    break;
+                case EOFRecord.sid:
+                    if (nestedDepth > 0) {
+                        nestedDepth--;
+                    } else if (inSubstream) {
+                        inSubstream = false;
+                        if (sheet != null) {
+                            sheet.finish();
+                            sheet = null;
+                        }
+                        if (substreamIndex >= lastSelected) {
+                            return 1; // Stop, the last selected sheet is done
+                        }
+                    }
+                    break;
+                case SSTRecord.sid:
+                    sst = (SSTRecord) record;
+                    break;
+                case DateWindow1904Record.sid:
+                    date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                    break;
+                case BoundSheetRecord.sid:
+                    boundSheets.add((BoundSheetRecord) record);
+                    break;
+                case RowRecord.sid:
+                    if (sheet != null && nestedDepth == 0) {
+                        sheet.declaredRows.set(((RowRecord) record).getRowNumber());
+                    }
+                    break;
+                case StringRecord.sid:
+                    if (sheet != null) {
+                        sheet.stringResult(((StringRecord) record).getString().trim());
+                    }
+                    break;
+                default:
+                    if (sheet != null && nestedDepth == 0 && record instanceof CellValueRecordInterface) {
+                        sheet.handleCell((CellValueRecordInterface) record);
+                    }
+                    break;
+            }
+            return 0;
+        }
+
+        /**
+         * Name the sheets in stream order and find the last one that is selected
+         */
+        private void selectSheets() {
+            BoundSheetRecord[] ordered = BoundSheetRecord.orderByBofPosition(boundSheets);
+            sheetNames = new String[ordered.length];
+            for (int i = 0; i < ordered.length; i++) {
+                sheetNames[i] = ordered[i].getSheetname();
+                if (selection.matches(i, sheetNames[i])) {
+                    lastSelected = i;
+                }
+            }
+        }
+
+        /**
+         * Dates become text like in the DOM path, plain numbers go to number and null is returned
+         */
+        private String numberValue(SheetReader reader, CellValueRecordInterface cell, double num) {
+            int formatIndex = formatTracker.getFormatIndex(cell);
+            String formatString = formatTracker.getFormatString(cell);
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(num)) {
+                return DateUtil.getJavaDate(num, date1904).toString();
+            }
+            reader.number = num;
+            return null;
+        }
+
+        /**
+         * Collects the cell records of one worksheet and hands them out row by row.
+         * Rows are emitted in ascending order, including rows that only have a ROW record,
+         * so the result has the same shape as iterating the sheet in the DOM model.
+         */
+        private class SheetReader {
+            private static final int HEADER_SLOT = -2; // Cell of the header row, collected into header
+
+            private final SheetRows rows;
+
+            // Set up once the projection is resolved, which may need the header row
+            private int[] slotByColumn = new int[0];
+            private String[] values = new String[0];
+            private double[] numbers = new double[0];
+
+            // Text of the header row by column, only collected when the projection needs it
+            private String[] header;
+            private int pendingHeaderColumn = -1;
+            private double number; // Value of the last plain numeric cell
+
+            private final BitSet declaredRows = new BitSet();
+            private int currentRow = -1;
+            private boolean headerSkipped;
+
+            // Slot waiting for the STRING record that follows a string formula
+            private int pendingStringSlot = -1;
+
+            SheetReader(SheetRows rows) {
+                this.rows = rows;
+
+                if (rows.needsHeader()) {
+                    header = new String[0];
+                } else {
+                    project(rows.resolve(null));
+                }
+            }
+
+            private void project(int[] columns) {
+                values = new String[columns.length];
+                numbers = new double[columns.length];
+                Arrays.fill(values, "");
+
+                int maxColumn = Arrays.stream(columns).max().orElse(-1);
+                slotByColumn = new int[maxColumn + 1];
+                Arrays.fill(slotByColumn, -1);
+                for (int i = 0; i < columns.length; i++) {
+                    slotByColumn[columns[i]] = i;
+                }
+            }
+
+            /**
+             * Cached text result of the string formula before
+             */
+            private void stringResult(String value) {
+                if (pendingStringSlot >= 0) {
+                    values[pendingStringSlot] = value;
+                    pendingStringSlot = -1;
+                } else if (pendingHeaderColumn >= 0) {
+                    header[pendingHeaderColumn] = value;
+                    pendingHeaderColumn = -1;
+                }
+            }
+
+            private void handleCell(CellValueRecordInterface cell) {
+                moveToRow(cell.getRow());
+
+                int column = cell.getColumn();
+                int slot;
+                if (!headerSkipped) {
+                    // Only decoded when the projection picks columns by header name
+                    slot = header != null ? HEADER_SLOT : -1;
+                } else {
+                    slot = column < slotByColumn.length ? slotByColumn[column] : -1;
+                }
+                if (slot == -1) {
+                    return; // Not projected, skip decoding
+                }
+
+                String value;
+                switch (((Record) cell).getSid()) {
+                    case LabelSSTRecord.sid:
+                        int index = ((LabelSSTRecord) cell).getSSTIndex();
+                        value = sst.getString(index).getString().trim();
+                        break;
+                    case LabelRecord.sid:
+                        value = ((LabelRecord) cell).getValue().trim();
+                        break;
+                    case NumberRecord.sid:
+                        value = numberValue(this, cell, ((NumberRecord) cell).getValue());
+                        break;
+                    case BoolErrRecord.sid:
+                        BoolErrRecord boolErr = (BoolErrRecord) cell;
+                        value = boolErr.isBoolean() ? String.valueOf(boolErr.getBooleanValue()) : "";
+                        break;
+                    case FormulaRecord.sid:
+                        value = formulaResult(slot, column, (FormulaRecord) cell);
+                        break;
+                    default:
+                        return;
+                }
+
+                if (slot == HEADER_SLOT) {
+                    if (column >= header.length) {
+                        header = Arrays.copyOf(header, column + 1);
+                    }
+                    header[column] = value != null ? value : SimpleExcelReader.formatNumber(number);
+                } else {
+                    values[slot] = value;
+                    if (value == null) {
+                        numbers[slot] = number;
+                    }
+                }
+            }
+
+            /**
+             * Cached result of a formula, the same as the DOM path reads.
+             * A string result follows in its own STRING record.
+             */
+            private String formulaResult(int slot, int column, FormulaRecord formula) {
+                switch (formula.getCachedResultTypeEnum()) {
+                    case NUMERIC:
+                        return numberValue(this, formula, formula.getValue());
+                    case BOOLEAN:
+                        return String.valueOf(formula.getCachedBooleanValue());
+                    case STRING:
+                        if (slot == HEADER_SLOT) {
+                            pendingHeaderColumn = column;
+                        } else {
+                            pendingStringSlot = slot;
+                        }
+                        return "";
+                    default:
+                        return "";
+                }
+            }
+
+            /**
+             * Emit every row before the given one, then start collecting it
+             */
+            private void moveToRow(int row) {
+                if (row == currentRow) {
+                    return;
+                }
+
+                if (currentRow >= 0) {
+                    emit();
+                }
+                for (int r = declaredRows.nextSetBit(currentRow + 1); r >= 0 && r < row;
+                     r = declaredRows.nextSetBit(r + 1)) {
+                    emit();
+                }
+                currentRow = row;
+            }
+
+            private void finish() {
+                if (currentRow >= 0) {
+                    emit();
+                }
+                for (int r = declaredRows.nextSetBit(currentRow + 1); r >= 0; r = declaredRows.nextSetBit(r + 1)) {
+                    emit();
+                }
+            }
+
+            private void emit() {
+                // The first row of the sheet is the header, same as the DOM path
+                if (headerSkipped) {
+                    rows.row(values, numbers);
+                } else if (header != null) {
+                    project(rows.resolve(header));
+                    header = null;
+                }
+                headerSkipped = true;
+                Arrays.fill(values, "");
+            }
+        }
+    }
+}
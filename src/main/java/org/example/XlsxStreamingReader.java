@@ -0,0 +1,438 @@
+package org.example;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Reads .xlsx files through the XSSF event (SAX) API.
+ * Only the shared strings table is kept in memory, the sheet XML is parsed row by row
+ * and only the projected columns are decoded.
+ * Worksheet parts are independent, so several sheets of a workbook are parsed concurrently.
+ */
+public class XlsxStreamingReader {
+
+    private ConversionMetrics metrics; // Marks where opening ends and reading starts, may be null
+    private Executor executor = ForkJoinPool.commonPool(); // Parses additional sheets, null for none
+
+    /**
+     * Read the first sheet, skipping its first row (the header)
+     * @param filePath Path of the .xlsx file
+     * @param columns Source column indices to project, in output order
+     * @param handler Receives one call per data row
+     */
+    public void read(String filePath, int[] columns, RowHandler handler)
+            throws IOException, OpenXML4JException, SAXException {
+        read(filePath, ColumnProjection.of(columns), handler);
+    }
+
+    /**
+     * Read the first sheet, skipping its first row (the header)
+     * @param filePath Path of the .xlsx file
+     * @param projection Source columns to decode, possibly picked from the header row
+     * @param handler Receives one call per data row
+     */
+    void read(String filePath, ColumnProjection projection, RowHandler handler)
+            throws IOException, OpenXML4JException, SAXException {
+        try (OPCPackage pkg = OPCPackage.open(new File(filePath), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            boolean[] dateStyles = findDateStyles(xssfReader.getStylesTable());
+            boolean date1904 = isDate1904(xssfReader);
+
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            try (InputStream sheet = sheets.next()) {
+                if (metrics != null) {
+                    metrics.startStage(ConversionMetrics.Stage.READ);
+                }
+                SheetHandler sheetHandler = new SheetHandler(strings, dateStyles, date1904, projection, handler);
+                parse(sheet, sheetHandler);
+            }
+        }
+    }
+
+    /**
+     * Read every selected worksheet, skipping the first row (the header) of each.
+     * The calling thread parses the first selected sheet, the others are parsed on the executor.
+     * @param filePath Path of the .xlsx file
+     * @param selection Sheets to read
+     * @param sheets Creates the projection and handler of a sheet from its name. Called on the calling
+     *               thread in workbook order before any sheet is parsed, each result is then used
+     *               by one thread only.
+     * @return Number of sheets read
+     */
+    int readSheets(String filePath, SheetSelection selection, Function<String, ? extends SheetRows> sheets)
+            throws IOException, OpenXML4JException, SAXException {
+        try (OPCPackage pkg = OPCPackage.open(new File(filePath), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            boolean[] dateStyles = findDateStyles(xssfReader.getStylesTable());
+            boolean date1904 = isDate1904(xssfReader);
+
+            // Selected worksheet parts in workbook order, chart sheets have no cells
+            List<PackagePart> parts = new ArrayList<>();
+            List<SheetHandler> handlers = new ArrayList<>();
+            XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            for (int index = 0; iterator.hasNext(); index++) {
+                iterator.next().close(); // Opened again by whoever parses it
+                PackagePart part = iterator.getSheetPart();
+                if (selection.matches(index, iterator.getSheetName())
+                        && XSSFRelation.WORKSHEET.getContentType().equals(part.getContentType())) {
+                    SheetRows rows = sheets.apply(iterator.getSheetName());
+                    parts.add(part);
+                    handlers.add(new SheetHandler(strings, dateStyles, date1904, rows, rows));
+                }
+            }
+            if (parts.isEmpty()) {
+                return 0;
+            }
+
+            if (metrics != null) {
+                metrics.startStage(ConversionMetrics.Stage.READ);
+            }
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (int i = 1; i < parts.size() && executor != null; i++) {
+                PackagePart part = parts.get(i);
+                SheetHandler handler = handlers.get(i);
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        parseSheet(part, handler);
+                    } catch (IOException | SAXException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+
+            Throwable failure = null;
+            try {
+                for (int i = 0; i < (tasks.isEmpty() ? parts.size() : 1); i++) {
+                    parseSheet(parts.get(i), handlers.get(i));
+                }
+            } catch (IOException | SAXException | RuntimeException e) {
+                failure = e;
+            }
+            // Wait for every task before the package is closed, even after a failure
+            for (CompletableFuture<Void> task : tasks) {
+                try {
+                    task.join();
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof SAXException) {
+                throw (SAXException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure != null) {
+                throw (Error) failure;
+            }
+            return parts.size();
+        }
+    }
+
+    private static void parseSheet(PackagePart part, SheetHandler handler) throws IOException, SAXException {
+        try (InputStream sheet = part.getInputStream()) {
+            parse(sheet, handler);
+        }
+    }
+
+    /**
+     * Record the start of the READ stage into the given metrics, null to stop
+     */
+    public void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Set where additional sheets are parsed (the common fork-join pool by default),
+     * null parses all sheets on the calling thread. Use a pool whose threads never wait
+     * for a read themselves.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Look up once which cell styles carry a date format, so cells don't have to
+     */
+    private static boolean[] findDateStyles(StylesTable styles) {
+        if (styles == null) {
+            return new boolean[0];
+        }
+
+        boolean[] dateStyles = new boolean[styles.getNumCellStyles()];
+        for (int i = 0; i < dateStyles.length; i++) {
+            XSSFCellStyle style = styles.getStyleAt(i);
+            if (style != null) {
+                dateStyles[i] = DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            }
+        }
+        return dateStyles;
+    }
+
+    /**
+     * Check the workbookPr/@date1904 flag in workbook.xml
+     */
+    private static boolean isDate1904(XSSFReader xssfReader)
+            throws IOException, OpenXML4JException, SAXException {
+        boolean[] date1904 = new boolean[1];
+
+        try (InputStream workbook = xssfReader.getWorkbookData()) {
+            parse(workbook, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("workbookPr".equals(localName)) {
+                        String value = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+                    }
+                }
+            });
+        }
+        return date1904[0];
+    }
+
+    private static void parse(InputStream inputStream, DefaultHandler handler) throws IOException, SAXException {
+        try {
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(handler);
+            xmlReader.parse(new InputSource(inputStream));
+        } catch (ParserConfigurationException e) {
+            throw new SAXException("SAX parser appears to be broken", e);
+        }
+    }
+
+    /**
+     * SAX handler for one worksheet part
+     */
+    private static class SheetHandler extends DefaultHandler {
+        private static final int HEADER_SLOT = -2; // Cell of the header row, collected into header
+        private final ReadOnlySharedStringsTable strings;
+        private final boolean[] dateStyles;
+        private final boolean date1904;
+        private final RowHandler handler;
+        private final ColumnProjection projection;
+
+        // Maps a source column index to its position in the projection, -1 when not projected.
+        // Set up once the projection is resolved, which may need the header row.
+        private int[] slotByColumn = new int[0];
+        private String[] values = new String[0];
+        private double[] numbers = new double[0];
+
+        // Text of the header row by column, only collected when the projection needs it
+        private String[] header;
+        private double number; // Value of the last plain numeric cell
+
+        private final StringBuilder text = new StringBuilder();
+
+        private boolean firstRow = true;
+        private boolean headerRow;
+        private int lastColumn;
+
+        // State of the current <c> element
+        private int slot = -1;
+        private String cellType;
+        private int styleIndex;
+        private boolean inValue;
+        private boolean inPhonetic;
+
+        SheetHandler(ReadOnlySharedStringsTable strings, boolean[] dateStyles, boolean date1904,
+                     ColumnProjection projection, RowHandler handler) {
+            this.strings = strings;
+            this.dateStyles = dateStyles;
+            this.date1904 = date1904;
+            this.handler = handler;
+            this.projection = projection;
+
+            if (projection.needsHeader()) {
+                header = new String[0];
+            } else {
+                project(projection.resolve(null));
+            }
+        }
+
+        private void project(int[] columns) {
+            values = new String[columns.length];
+            numbers = new double[columns.length];
+
+            int maxColumn = Arrays.stream(columns).max().orElse(-1);
+            slotByColumn = new int[maxColumn + 1];
+            Arrays.fill(slotByColumn, -1);
+            for (int i = 0; i < columns.length; i++) {
+                slotByColumn[columns[i]] = i;
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    // The first row of the sheet is the header, same as the DOM path
+                    headerRow = firstRow;
+                    firstRow = false;
+                    lastColumn = -1;
+                    Arrays.fill(values, "");
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    int column = ref != null ? columnIndex(ref) : lastColumn + 1;
+                    lastColumn = column;
+
+                    if (headerRow) {
+                        // Only decoded when the projection picks columns by header name
+                        slot = header != null ? HEADER_SLOT : -1;
+                    } else {
+                        slot = column < slotByColumn.length ? slotByColumn[column] : -1;
+                    }
+                    if (slot != -1) {
+                        cellType = attributes.getValue("t");
+                        String style = attributes.getValue("s");
+                        styleIndex = style != null ? Integer.parseInt(style) : 0;
+                        text.setLength(0);
+                    }
+                    break;
+                case "v":
+                case "t":
+                    inValue = slot != -1 && !inPhonetic;
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    inValue = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "c":
+                    if (slot == HEADER_SLOT) {
+                        addHeaderCell(lastColumn);
+                    } else if (slot >= 0) {
+                        String value = cellValue();
+                        values[slot] = value;
+                        if (value == null) {
+                            numbers[slot] = number;
+                        }
+                    }
+                    slot = -1;
+                    break;
+                case "row":
+                    if (!headerRow) {
+                        handler.row(values, numbers);
+                    } else if (header != null) {
+                        project(projection.resolve(header));
+                        header = null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            // Formula text in <f> is skipped, <v> holds the cached result like for any other cell
+            if (inValue) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private void addHeaderCell(int column) {
+            if (column >= header.length) {
+                header = Arrays.copyOf(header, column + 1);
+            }
+            String value = cellValue();
+            header[column] = value != null ? value : SimpleExcelReader.formatNumber(number);
+        }
+
+        /**
+         * Column index of a cell reference like "K12", without building a CellReference
+         */
+        private static int columnIndex(String ref) {
+            int column = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+
+        /**
+         * Convert the collected cell content the same way SimpleExcelReader.cellToString does,
+         * except that plain numbers are stored in number and null is returned
+         */
+        private String cellValue() {
+            if (cellType == null || "n".equals(cellType)) {
+                if (text.length() == 0) {
+                    return "";
+                }
+                double num = Double.parseDouble(text.toString());
+                if (styleIndex < dateStyles.length && dateStyles[styleIndex] && DateUtil.isValidExcelDate(num)) {
+                    return DateUtil.getJavaDate(num, date1904).toString();
+                }
+                number = num;
+                return null;
+            }
+
+            switch (cellType) {
+                case "s":
+                    return strings.getItemAt(Integer.parseInt(text.toString().trim())).getString().trim();
+                case "inlineStr":
+                case "str":
+                    return text.toString().trim();
+                case "b":
+                    return String.valueOf("1".contentEquals(text));
+                default:
+                    // "e" (error) and anything unknown
+                    return "";
+            }
+        }
+    }
+}
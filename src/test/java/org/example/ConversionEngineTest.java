@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConversionEngineTest {
+
+    private static final Path OUTPUT = Path.of("out");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsTheInputExtensionWhenTheFormatChanges() {
+        assertEquals(OUTPUT.resolve("output - t.xls.xlsx"),
+                ConversionEngine.outputFileFor(Path.of("t.xls"), OUTPUT, ".xlsx"));
+        assertEquals(OUTPUT.resolve("output - t.xlsx"),
+                ConversionEngine.outputFileFor(Path.of("t.xlsx"), OUTPUT, ".xlsx"));
+        assertEquals(OUTPUT.resolve("output - t.XLS"),
+                ConversionEngine.outputFileFor(Path.of("t.XLS"), OUTPUT, ".xls"));
+        assertEquals(OUTPUT.resolve("output - t.xls"), ConversionEngine.outputFileFor(Path.of("t.xls"), OUTPUT, null));
+    }
+
+    @Test
+    public void inputsOfDifferentFormatsGetDifferentOutputs() {
+        for (String extension : ConversionEngine.OUTPUT_EXTENSIONS) {
+            assertNotEquals(ConversionEngine.outputFileFor(Path.of("t.xls"), OUTPUT, extension),
+                    ConversionEngine.outputFileFor(Path.of("t.xlsx"), OUTPUT, extension));
+            assertNotEquals(ConversionEngine.outputFileFor(Path.of("t.xls"), "Kelas A", OUTPUT, extension),
+                    ConversionEngine.outputFileFor(Path.of("t.xlsx"), "Kelas A", OUTPUT, extension));
+        }
+    }
+
+    @Test
+    public void namesSheetFilesAfterTheSheet() {
+        assertEquals(OUTPUT.resolve("output - t - Kelas A.xlsx"),
+                ConversionEngine.outputFileFor(Path.of("t.xlsx"), "Kelas A", OUTPUT, null));
+        assertEquals(OUTPUT.resolve("output - t.xlsx - Kelas_A.csv"),
+                ConversionEngine.outputFileFor(Path.of("t.xlsx"), "Kelas/A", OUTPUT, ".csv"));
+        assertEquals(OUTPUT.resolve("output - t - Kelas A.csv"),
+                ConversionEngine.outputFileFor(Path.of("t.csv"), "Kelas A", OUTPUT, ".csv"));
+    }
+
+    @Test(timeout = 60_000)
+    public void failingListenerDoesNotStallTheBatch() throws Exception {
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Path input = folder.getRoot().toPath().resolve("kelas " + i + ".csv");
+            Files.writeString(input, "Nis,Nama,Nama lengkap,Kelas,Nilai\n" + i + ",Ani,Ani Putri,IPA,90\n");
+            inputs.add(input);
+        }
+        inputs.add(folder.getRoot().toPath().resolve("missing.csv"));
+
+        try (ConversionEngine engine = new ConversionEngine(1)) {
+            List<ConversionResult> results = engine.convert(inputs, folder.newFolder("out").toPath(),
+                    (result, completed, total) -> {
+                        throw new AssertionError("listener failed");
+                    });
+            assertEquals(inputs.size(), results.size());
+            assertTrue(results.get(0).isSuccess());
+            assertFalse(results.get(inputs.size() - 1).isSuccess());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CsvReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsQuotedFields() throws IOException {
+        List<List<Object>> rows = read("Nama,Catatan,Nilai\r\n"
+                + "\"Putri, Ayu\",\"Kata \"\"bagus\"\"\",90\r\n"
+                + "\"Budi\",\"baris satu\nbaris dua\",\"85\"\r\n"
+                + "Citra,,\r\n", 0, 1, 2);
+
+        assertEquals(List.of(
+                List.of("Putri, Ayu", "Kata \"bagus\"", 90.0),
+                List.of("Budi", "baris satu\nbaris dua", 85.0),
+                List.of("Citra", "", "")), rows);
+    }
+
+    @Test
+    public void detectsSemicolonAndTab() throws IOException {
+        assertEquals(List.of(List.of("Ani", "IPA", 80.5)), read("Nama;Kelas;Nilai\nAni;IPA;80.5\n", 0, 1, 2));
+        assertEquals(List.of(List.of("Ani, S.Pd", 80.5)), read("Nama\tNilai\nAni, S.Pd\t80.5\n", 0, 1));
+    }
+
+    @Test
+    public void ignoresDelimitersInQuotedHeaders() throws IOException {
+        // Two semicolons, the three commas are inside quotes
+        assertEquals(List.of(List.of("Ani", 7.0)), read("\"a,b,c,d\";Kelas;Nilai\nAni;7;\n", 0, 1));
+    }
+
+    @Test
+    public void skipsByteOrderMark() throws IOException {
+        Path file = write("\uFEFFNama,Nilai\nAni,90\n");
+        String[][] header = new String[1][];
+        ColumnProjection byHeader = new ColumnProjection() {
+            @Override
+            public boolean needsHeader() {
+                return true;
+            }
+
+            @Override
+            public int[] resolve(String[] names) {
+                header[0] = names;
+                return new int[]{Arrays.asList(names).indexOf("Nama")};
+            }
+        };
+        List<List<Object>> rows = new ArrayList<>();
+        new CsvReader().read(file.toString(), byHeader, collect(rows));
+
+        assertArrayEquals(new String[]{"Nama", "Nilai"}, header[0]);
+        assertEquals(List.of(List.of("Ani")), rows);
+    }
+
+    @Test
+    public void keepsFormattedNumbersAsText() throws IOException {
+        // Values are trimmed, only numbers that read back the same are typed
+        assertEquals(List.of(List.of("007", "1.50", 85.0, "85.0", -2.5, "")),
+                read("a,b,c,d,e,f\n007,1.50,85,85.0, -2.5 ,\" \"\n", 0, 1, 2, 3, 4, 5));
+    }
+
+    @Test
+    public void typesLargeWholeNumbers() throws IOException {
+        // Student numbers beyond an int are numbers too, digits a double cannot hold stay text
+        assertEquals(List.of(List.of(2147483648.0, 1234567890123.0, "12345678901234567890")),
+                read("a,b,c\n2147483648,1234567890123,12345678901234567890\n", 0, 1, 2));
+    }
+
+    @Test
+    public void skipsBlankLinesAndMissingColumns() throws IOException {
+        assertEquals(List.of(List.of("Ani", ""), List.of("Budi", 70.0)),
+                read("Nama,Kelas,Nilai\n\r\nAni\n\nBudi,X,70", 0, 2));
+    }
+
+    @Test
+    public void namesTheSheetAfterTheFile() {
+        assertEquals("nilai kelas 7", CsvReader.sheetName(Path.of("data", "nilai kelas 7.csv")));
+    }
+
+    private List<List<Object>> read(String content, int... columns) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        new CsvReader().read(write(content).toString(), columns, collect(rows));
+        return rows;
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Handler keeping every row, numbers as Double and text as String
+     */
+    private static RowHandler collect(List<List<Object>> rows) {
+        return (values, numbers) -> {
+            List<Object> row = new ArrayList<>();
+            for (int i = 0; i < values.length; i++) {
+                row.add(values[i] != null ? values[i] : (Object) numbers[i]);
+            }
+            rows.add(row);
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package org.example;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.ConditionalFormatting;
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.FontFormatting;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The direct writer must produce the workbook SimpleExcelExporter writes through SXSSF
+ */
+public class DirectXlsxWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheSameWorkbookAsSxssf() throws IOException {
+        Map<String, GradeTable> tables = new LinkedHashMap<>();
+        tables.put("Kelas A", classA());
+        tables.put("Kelas/B", GradeTable.fromRows(List.of(
+                List.of("3", "Dewi", "Dewi Lestari", "IPA", "77.5"),
+                List.of("4", "Eka"),
+                List.of("5", "Fajar", "Fajar", "IPS", "TRUE"))));
+
+        assertEquals(describe(export(tables, false, HighlightRules.below(78))),
+                describe(export(tables, true, HighlightRules.below(78))));
+        HighlightRules bands = HighlightRules.parse("60:RED:WHITE,78:LIGHT_ORANGE,90.5:LIGHT_GREEN");
+        assertEquals(describe(export(tables, false, bands)), describe(export(tables, true, bands)));
+    }
+
+    private static GradeTable classA() {
+        GradeTable table = new GradeTable();
+        table.addRow("1", "Ani", "Ani Putri", "IPA", 85);
+        table.addRow("2", "Budi", "Budi <Santoso> & \"Putra\"", "IPA", 59.25);
+        table.addRow("6", "Citra", " Citra\tNur ", "IPS", "remedial");
+        table.addRow("7", "", "Zoë Ñoño", "IPS", 100);
+        table.addRow("8", null, "Gilang", "IPA", (String) null);
+        table.addRow("9", "Hana", "Hana", "", 2147483648.0);
+        return table;
+    }
+
+    private Path export(Map<String, GradeTable> tables, boolean direct, HighlightRules rules) throws IOException {
+        SimpleExcelExporter exporter = new SimpleExcelExporter();
+        exporter.setDirectWriter(direct);
+        exporter.setAutoSizeColumns(false);
+        exporter.setHighlightRules(rules);
+        Path file = folder.newFolder().toPath().resolve("nilai.xlsx");
+        exporter.exportSheets(file.toString(), tables, List.of("ID", "First Name", "Full Name", "Department", "Score"));
+        return file;
+    }
+
+    /**
+     * Sheet names, cells with their type, value and style, column widths and the conditional formatting
+     */
+    private static List<String> describe(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file); Workbook workbook = new XSSFWorkbook(in)) {
+            for (Sheet sheet : workbook) {
+                lines.add("sheet " + sheet.getSheetName());
+                for (int column = 0; column < GradeTable.COLUMN_COUNT; column++) {
+                    lines.add("width " + column + " " + sheet.getColumnWidth(column));
+                }
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        lines.add(cell.getAddress() + " " + cell.getCellType() + " " + value(cell) + " "
+                                + style(workbook, cell.getCellStyle()));
+                    }
+                }
+                SheetConditionalFormatting formatting = sheet.getSheetConditionalFormatting();
+                for (int i = 0; i < formatting.getNumConditionalFormattings(); i++) {
+                    ConditionalFormatting rules = formatting.getConditionalFormattingAt(i);
+                    for (int r = 0; r < rules.getNumberOfRules(); r++) {
+                        lines.add("format " + Arrays.toString(rules.getFormattingRanges()) + " " + rule(rules.getRule(r)));
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static String value(Cell cell) {
+        switch (cell.getCellType()) {
+            case NUMERIC:
+                return String.valueOf(cell.getNumericCellValue());
+            case BOOLEAN:
+                return String.valueOf(cell.getBooleanCellValue());
+            default:
+                return "\"" + cell.getStringCellValue() + "\"";
+        }
+    }
+
+    private static String style(Workbook workbook, CellStyle style) {
+        return "bold=" + workbook.getFontAt(style.getFontIndex()).getBold()
+                + " fill=" + style.getFillForegroundColor() + "/" + style.getFillPattern()
+                + " border=" + style.getBorderTop() + style.getBorderBottom() + style.getBorderLeft()
+                + style.getBorderRight() + " align=" + style.getAlignment();
+    }
+
+    private static String rule(ConditionalFormattingRule rule) {
+        FontFormatting font = rule.getFontFormatting();
+        return rule.getFormula1() + " fill=" + rule.getPatternFormatting().getFillBackgroundColor()
+                + " font=" + (font != null ? font.getFontColorIndex() + "/" + font.isBold() : "none");
+    }
+}
@@ -0,0 +1,116 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.text.Collator;
+import java.text.ParseException;
+import java.text.RuleBasedCollator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * GradeSorter must order rows exactly like the id-ID collator, whether it uses the ASCII fast path
+ * (plain names only) or collation keys
+ */
+public class GradeSorterTest {
+
+    @Test
+    public void plainNamesSortLikeTheCollator() {
+        assertSortedLikeCollator(table("Kelas A",
+                "Ali Baba", "Alibaba", "ALI", "ali", "Budi 10", "budi 2", "Budi", "budi", "Zaki", "zainal",
+                "Andi  Putra", "Andi Putra", "andi", "07 Siti", "Siti 007", "siti 7", "A", "a b", "ab"));
+    }
+
+    @Test
+    public void randomPlainNamesSortLikeTheCollator() {
+        String alphabet = "abcdefgABCDEFG0123456789  ";
+        Random random = new Random(42);
+        GradeTable table = new GradeTable();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int c = 0; c < length; c++) {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            table.addRow("", "", name.toString(), "Kelas " + random.nextInt(3), 80);
+        }
+        assertSortedLikeCollator(table);
+    }
+
+    @Test
+    public void hyphenatedAndAccentedNamesSortLikeTheCollator() {
+        assertSortedLikeCollator(table("Kelas A",
+                "Ana-Maria", "Ana Maria", "AnaMaria", "ana-maria", "José", "Jose", "JOSÉ", "Émile", "Emile",
+                "Zoë", "Zoe", "Nur-Aini", "Nur Aini", "Ñoño", "Nono"));
+    }
+
+    @Test
+    public void departmentsComeFirstAndIgnoreCase() {
+        GradeTable table = new GradeTable();
+        table.addRow("", "", "Budi", "ipa", 80);
+        table.addRow("", "", "Andi", "IPS", 80);
+        table.addRow("", "", "Citra", "IPA", 80);
+        table.addRow("", "", "Ani", "X-2", 80);
+        table.addRow("", "", "Dedi", "X-10", 80);
+        table.addRow("", "", "Eka", "", 80);
+        table.addRow("", "", null, "IPA", 80);
+        assertSortedLikeCollator(table);
+    }
+
+    private static GradeTable table(String department, String... names) {
+        GradeTable table = new GradeTable();
+        for (String name : names) {
+            table.addRow("", "", name, department, 80);
+        }
+        return table;
+    }
+
+    /**
+     * Compare with a stable sort on department, then full name, using the collator directly
+     */
+    private static void assertSortedLikeCollator(GradeTable table) {
+        Collator collator = referenceCollator();
+        Integer[] rows = new Integer[table.size()];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        Arrays.sort(rows, (row1, row2) -> {
+            int department = compare(collator, table.getDepartment(row1), table.getDepartment(row2));
+            return department != 0 ? department
+                    : compare(collator, table.getFullName(row1), table.getFullName(row2));
+        });
+
+        int[] expected = Arrays.stream(rows).mapToInt(Integer::intValue).toArray();
+        int[] actual = GradeSorter.sort(table);
+        assertArrayEquals("Order of " + names(table, expected) + " vs " + names(table, actual), expected, actual);
+    }
+
+    private static int compare(Collator collator, String value1, String value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == null ? (value2 == null ? 0 : -1) : 1;
+        }
+        return collator.compare(value1, value2);
+    }
+
+    /**
+     * The collator GradeSorter documents: id-ID, spaces before everything, case ignored
+     */
+    private static Collator referenceCollator() {
+        try {
+            RuleBasedCollator base = (RuleBasedCollator) Collator.getInstance(GradeSorter.SORT_LOCALE);
+            Collator collator = new RuleBasedCollator(base.getRules() + "& '\u0000' < ' '");
+            collator.setStrength(Collator.SECONDARY);
+            return collator;
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> names(GradeTable table, int[] order) {
+        return Arrays.stream(order).mapToObj(row -> table.getDepartment(row) + "/" + table.getFullName(row))
+                .toList();
+    }
+}
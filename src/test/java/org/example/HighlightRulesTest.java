@@ -0,0 +1,101 @@
+package org.example;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HighlightRulesTest {
+
+    @Test
+    public void parsesBandsInAnyOrder() {
+        HighlightRules rules = HighlightRules.parse(" 78:light orange , 60:RED:WHITE");
+
+        assertEquals(2, rules.getBands().size());
+        assertEquals(60, rules.getBands().get(0).getBelow(), 0);
+        assertEquals(IndexedColors.WHITE, rules.getBands().get(0).getFont());
+        assertEquals(IndexedColors.LIGHT_ORANGE, rules.getBands().get(1).getFill());
+        assertEquals(78, rules.getThreshold(), 0);
+        assertEquals("60:RED:WHITE,78:LIGHT_ORANGE", rules.toString());
+        assertEquals(rules.toString(), HighlightRules.parse(rules.toString()).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBandsWithTheSameBound() {
+        HighlightRules.parse("78:RED,78.0:YELLOW");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownColors() {
+        HighlightRules.parse("78:REDDISH");
+    }
+
+    @Test
+    public void writesBoundsWithoutExponent() {
+        HighlightRules rules = HighlightRules.parse("1E2:RED,0.5:YELLOW");
+
+        assertEquals("AND(ISNUMBER($E2),$E2<0.5)", rules.formula(0, "$E2"));
+        assertEquals("AND(ISNUMBER($E2),$E2<100,$E2>=0.5)", rules.formula(1, "$E2"));
+    }
+
+    @Test
+    public void bandFormulasSelectTheRowsOfTheirBand() throws IOException {
+        HighlightRules rules = HighlightRules.parse("60:RED:WHITE,78:LIGHT_ORANGE,90.5:LIGHT_GREEN");
+        Object[] scores = {0.0, 59.99, 60.0, 77.5, 78.0, 90.49, 90.5, 100.0, -1.0, "remedial", "", null};
+        int[] expectedBands = {0, 0, 1, 1, 2, 2, -1, -1, 0, -1, -1, -1};
+
+        assertEquals(toList(expectedBands), bandsInExcel(rules, scores));
+    }
+
+    /**
+     * Evaluate each band formula for each row like Excel does for the conditional formatting
+     * @return Index of the band whose formula is true for each row, -1 for none
+     */
+    private static List<Integer> bandsInExcel(HighlightRules rules, Object[] scores) throws IOException {
+        List<Integer> bands = new ArrayList<>();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            for (int i = 0; i < scores.length; i++) {
+                Row row = sheet.createRow(i + 1);
+                if (scores[i] instanceof Double) {
+                    row.createCell(4).setCellValue((Double) scores[i]);
+                } else if (scores[i] != null) {
+                    row.createCell(4).setCellValue((String) scores[i]);
+                }
+            }
+
+            FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+            for (int i = 0; i < scores.length; i++) {
+                int band = -1;
+                for (int b = 0; b < rules.getBands().size(); b++) {
+                    Cell cell = sheet.getRow(i + 1).createCell(5 + b);
+                    cell.setCellFormula(rules.formula(b, "$E" + (i + 2)));
+                    if (evaluator.evaluate(cell).getBooleanValue()) {
+                        assertEquals("Row " + (i + 2) + " is in two bands", -1, band);
+                        band = b;
+                    }
+                }
+                bands.add(band);
+            }
+        }
+        return bands;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,157 @@
+package org.example;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The streaming readers must return exactly what the WorkbookFactory (DOM) reader returns for the same file
+ */
+public class SimpleExcelReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamingXlsxReadsLikeTheWorkbook() throws IOException {
+        assertStreamingReadsLikeDom(gradebook(new XSSFWorkbook(), "nilai.xlsx"));
+    }
+
+    @Test
+    public void eventXlsReadsLikeTheWorkbook() throws IOException {
+        assertStreamingReadsLikeDom(gradebook(new HSSFWorkbook(), "nilai.xls"));
+    }
+
+    /**
+     * Read the first sheet and all sheets with both readers, compare values and which scores are numbers
+     */
+    private static void assertStreamingReadsLikeDom(Path file) throws IOException {
+        assertEquals(describe(read(file, false).readTable(file.toString())),
+                describe(read(file, true).readTable(file.toString())));
+        assertEquals(describe(read(file, false).readSheets(file.toString())),
+                describe(read(file, true).readSheets(file.toString())));
+    }
+
+    private static SimpleExcelReader read(Path file, boolean streaming) {
+        SimpleExcelReader reader = new SimpleExcelReader();
+        reader.setStreaming(streaming);
+        reader.setSheetSelection(SheetSelection.ALL);
+        // Columns A to E as they are, so every kind of cell ends up in the table
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.setSourceIndex(ColumnMapping.Field.LAST_NAME, 0);
+        mapping.setSourceIndex(ColumnMapping.Field.FIRST_NAME, 1);
+        mapping.setSourceIndex(ColumnMapping.Field.FULL_NAME, 2);
+        mapping.setSourceIndex(ColumnMapping.Field.DEPARTMENT, 3);
+        mapping.setSourceIndex(ColumnMapping.Field.SCORE, 4);
+        mapping.setType(ColumnMapping.Field.SCORE, ColumnMapping.Type.NUMBER);
+        reader.setColumnMapping(mapping);
+        return reader;
+    }
+
+    private static Map<String, List<String>> describe(Map<String, GradeTable> tables) {
+        Map<String, List<String>> described = new LinkedHashMap<>();
+        tables.forEach((name, table) -> described.put(name, describe(table)));
+        return described;
+    }
+
+    private static List<String> describe(GradeTable table) {
+        List<String> rows = new ArrayList<>();
+        for (int row = 0; row < table.size(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < GradeTable.COLUMN_COUNT; column++) {
+                values.add(table.getText(row, column));
+            }
+            rows.add(values + (table.hasNumericScore(row) ? " number" : " text"));
+        }
+        return rows;
+    }
+
+    /**
+     * A gradebook with the cells teachers' files have: dates, formulas with saved results, booleans,
+     * empty and sparse rows, a score typed as text and a second sheet
+     */
+    private Path gradebook(Workbook workbook, String fileName) throws IOException {
+        try (workbook) {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+
+            Sheet sheet = workbook.createSheet("Kelas A");
+            header(sheet);
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("Putri");
+            row.createCell(1).setCellValue("Ani");
+            row.createCell(2).setCellValue(LocalDate.of(2010, 5, 17));
+            row.getCell(2).setCellStyle(dateStyle);
+            row.createCell(3).setCellValue("IPA");
+            row.createCell(4).setCellValue(85);
+
+            row = sheet.createRow(2);
+            row.createCell(0).setCellValue("Budi");
+            row.createCell(1).setCellValue(true);
+            row.createCell(2).setCellFormula("A3&\" \"&\"Santoso\"");
+            row.createCell(3).setCellFormula("D2");
+            row.createCell(4).setCellFormula("40+45.5");
+
+            sheet.createRow(3); // Empty row, no cells at all
+            row = sheet.createRow(4);
+            row.createCell(0).setCellValue("");
+            row.createCell(4).setBlank();
+
+            // Rows 6 and 7 are missing, the next row skips columns
+            row = sheet.createRow(7);
+            row.createCell(0).setCellValue("Citra");
+            row.createCell(3).setCellValue("IPS");
+            row.createCell(4).setCellValue("remedial");
+
+            row = sheet.createRow(8);
+            row.createCell(1).setCellFormula("E9>80");
+            row.createCell(2).setCellValue(2147483648.0);
+            row.createCell(4).setCellValue(92.25);
+
+            row = sheet.createRow(9);
+            row.createCell(4).setCellFormula("E2/0");
+
+            sheet = workbook.createSheet("Kelas B");
+            header(sheet);
+            row = sheet.createRow(1);
+            row.createCell(0).setCellValue("Dewi");
+            row.createCell(1).setCellValue(false);
+            row.createCell(3).setCellValue("IPA");
+            row.createCell(4).setCellFormula("SUM(70,8)");
+
+            // Save the formula results like Excel does
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            Path file = folder.getRoot().toPath().resolve(fileName);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                workbook.write(out);
+            }
+            return file;
+        }
+    }
+
+    private static void header(Sheet sheet) {
+        Row header = sheet.createRow(0);
+        String[] names = {"Nama belakang", "Nama depan", "Catatan", "Kelas", "Nilai"};
+        for (int column = 0; column < names.length; column++) {
+            header.createCell(column).setCellValue(names[column]);
+        }
+    }
+}
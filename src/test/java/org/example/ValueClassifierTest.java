@@ -0,0 +1,85 @@
+package org.example;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ValueClassifierTest {
+
+    @Test
+    public void parsesPlainNumbers() {
+        assertEquals(85, ValueClassifier.parseNumber("85"), 0);
+        assertEquals(-3.5, ValueClassifier.parseNumber("-3.5"), 0);
+        assertEquals(1200, ValueClassifier.parseNumber("1.2E3"), 0);
+        assertEquals(0.015, ValueClassifier.parseNumber("1.5e-2"), 0);
+    }
+
+    @Test
+    public void parsesShortForms() {
+        assertEquals(85, ValueClassifier.parseNumber("85."), 0);
+        assertEquals(0.5, ValueClassifier.parseNumber(".5"), 0);
+        assertEquals(3, ValueClassifier.parseNumber("+3"), 0);
+        assertEquals(-0.5, ValueClassifier.parseNumber("-.5"), 0);
+    }
+
+    @Test
+    public void parsesLeadingZeros() {
+        assertEquals(7, ValueClassifier.parseNumber("007"), 0);
+        assertEquals(0.25, ValueClassifier.parseNumber("00.25"), 0);
+        assertEquals(0, ValueClassifier.parseNumber("000"), 0);
+    }
+
+    @Test
+    public void matchesDoubleParsingExactly() {
+        String[] values = {"0.1", "0.3", "78.45", "99.99", "123456.789", "9007199254740993",
+                "12345678901234567890123", "0.000000000000000000000001", "1e22", "1e23", "4.9e-324"};
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), ValueClassifier.parseNumber(value), 0);
+        }
+    }
+
+    @Test
+    public void rejectsOverflow() {
+        assertTrue(Double.isNaN(ValueClassifier.parseNumber("1e999")));
+        assertTrue(Double.isNaN(ValueClassifier.parseNumber("-1e999")));
+    }
+
+    @Test
+    public void rejectsText() {
+        String[] values = {null, "", " ", ".", "-", "+", "e5", "1e", "1e+", "12abc", "85 ", " 85", "1.2.3", "--1",
+                "A", "1,5", "NaN", "Infinity"};
+        for (String value : values) {
+            assertTrue("\"" + value + "\"", Double.isNaN(ValueClassifier.parseNumber(value)));
+            assertFalse("\"" + value + "\"", ValueClassifier.isNumeric(value));
+        }
+    }
+
+    @Test
+    public void formatsWholeNumbersWithoutDecimals() {
+        assertEquals("85", ValueClassifier.formatNumber(85));
+        assertEquals("-3", ValueClassifier.formatNumber(-3));
+        assertEquals("0", ValueClassifier.formatNumber(-0.0));
+        assertEquals("2147483648", ValueClassifier.formatNumber(2147483648.0));
+        assertEquals("15000000000", ValueClassifier.formatNumber(1.5E10));
+        assertEquals("9007199254740992", ValueClassifier.formatNumber(9007199254740992.0));
+        assertEquals("100000000000000000000", ValueClassifier.formatNumber(1e20));
+    }
+
+    @Test
+    public void formatsOtherNumbersLikeDouble() {
+        assertEquals("78.5", ValueClassifier.formatNumber(78.5));
+        assertEquals("0.1", ValueClassifier.formatNumber(0.1));
+        assertEquals("NaN", ValueClassifier.formatNumber(Double.NaN));
+        assertEquals("Infinity", ValueClassifier.formatNumber(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void detectsBooleans() {
+        assertEquals(ValueClassifier.TRUE, ValueClassifier.parseBoolean("TRUE"));
+        assertEquals(ValueClassifier.FALSE, ValueClassifier.parseBoolean("false"));
+        assertEquals(ValueClassifier.NOT_BOOLEAN, ValueClassifier.parseBoolean("yes"));
+        assertEquals(ValueClassifier.NOT_BOOLEAN, ValueClassifier.parseBoolean(null));
+    }
+}